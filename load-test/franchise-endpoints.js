@@ -0,0 +1,63 @@
+// Prueba de carga de los endpoints de FranchiseController con k6 (https://k6.io)
+//
+//   k6 run -e BASE_URL=http://localhost:5000 -e BRANCHES=200 -e PRODUCTS=20 load-test/franchise-endpoints.js
+//
+// Al final imprime los hilos vivos de la JVM según /actuator/metrics/jvm.threads.live,
+// para comparar el stack servlet + WebFlux con WebFlux sobre Netty.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:5000';
+const BRANCHES = parseInt(__ENV.BRANCHES || '200', 10);
+const PRODUCTS = parseInt(__ENV.PRODUCTS || '20', 10);
+const JSON_HEADERS = { headers: { 'Content-Type': 'application/json' } };
+
+export const options = {
+    scenarios: {
+        reads: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '100', 10),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const branches = [];
+    for (let b = 0; b < BRANCHES; b++) {
+        const products = [];
+        for (let p = 0; p < PRODUCTS; p++) {
+            products.push({ id: `p${p}`, name: `Product ${p}`, stock: (b * 31 + p * 17) % 1000 });
+        }
+        branches.push({ id: `b${b}`, name: `Branch ${b}`, products });
+    }
+    const res = http.post(`${BASE_URL}/franchises`,
+        JSON.stringify({ name: `load-test-${Date.now()}`, branches }), JSON_HEADERS);
+    check(res, { 'franchise created': (r) => r.status === 200 || r.status === 201 });
+    return { franchiseId: res.json('id') };
+}
+
+export default function (data) {
+    const id = data.franchiseId;
+    const branch = `b${Math.floor(Math.random() * BRANCHES)}`;
+    const product = `p${Math.floor(Math.random() * PRODUCTS)}`;
+
+    check(http.get(`${BASE_URL}/franchises/${id}`, { tags: { endpoint: 'getFranchiseById' } }),
+        { 'getFranchiseById 200': (r) => r.status === 200 });
+    check(http.get(`${BASE_URL}/franchises/${id}/products/max-stock`, { tags: { endpoint: 'maxStock' } }),
+        { 'maxStock 200': (r) => r.status === 200 });
+    check(http.get(`${BASE_URL}/franchises?limit=50&view=SUMMARY`, { tags: { endpoint: 'page' } }),
+        { 'page 200': (r) => r.status === 200 });
+    check(http.patch(`${BASE_URL}/franchises/${id}/branches/${branch}/products/${product}/stock/adjust?delta=1`,
+        null, { tags: { endpoint: 'adjustStock' } }),
+        { 'adjustStock 204': (r) => r.status === 204 });
+}
+
+export function teardown(data) {
+    const threads = http.get(`${BASE_URL}/actuator/metrics/jvm.threads.live`);
+    if (threads.status === 200) {
+        console.log(`jvm.threads.live=${threads.json('measurements.0.value')}`);
+    }
+    http.del(`${BASE_URL}/franchises/${data.franchiseId}`);
+}
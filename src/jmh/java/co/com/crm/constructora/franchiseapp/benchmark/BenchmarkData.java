@@ -0,0 +1,58 @@
+package co.com.crm.constructora.franchiseapp.benchmark;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Franchise franchise(int branchCount, int productCount) {
+        List<Branch> branches = new ArrayList<>(branchCount);
+        for (int b = 0; b < branchCount; b++) {
+            List<Product> products = new ArrayList<>(productCount);
+            for (int p = 0; p < productCount; p++) {
+                products.add(new Product("p" + p, "Product " + p, (b * 31 + p * 17) % 1000));
+            }
+            branches.add(new Branch("b" + b, "Branch " + b, products));
+        }
+        Franchise franchise = new Franchise();
+        franchise.setId("f1");
+        franchise.setName("Franchise 1");
+        franchise.setBranches(branches);
+        franchise.setVersion(0L);
+        return franchise;
+    }
+
+    // Repositorio en memoria: findById devuelve siempre la misma franquicia y save la devuelve tal cual
+    static FranchiseRepository repository(Franchise franchise) {
+        return (FranchiseRepository) Proxy.newProxyInstance(FranchiseRepository.class.getClassLoader(),
+                new Class<?>[]{FranchiseRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Mono.just(franchise);
+                    case "findVersion" -> Mono.justOrEmpty(franchise.getVersion());
+                    case "save" -> Mono.just(args[0]);
+                    case "existsById" -> Mono.just(true);
+                    case "toString" -> "StubFranchiseRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // Para dependencias que el benchmark no ejercita
+    static <T> T unused(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+}
@@ -0,0 +1,82 @@
+package co.com.crm.constructora.franchiseapp.benchmark;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tiempo de codificación de una franquicia completa y bytes resultantes (contador "bytes") por formato,
+ * con y sin gzip, para comparar application/json con CBOR y Smile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FranchiseEncodingBenchmark {
+
+    public enum Format {
+        JSON(new ObjectMapper()),
+        CBOR(new CBORMapper()),
+        SMILE(new SmileMapper());
+
+        private final ObjectMapper mapper;
+
+        Format(ObjectMapper mapper) {
+            this.mapper = mapper;
+        }
+    }
+
+    @Param({"100", "1000"})
+    private int branches;
+
+    @Param({"10", "100"})
+    private int products;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private Format format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private Franchise franchise;
+
+    @Setup
+    public void setUp() {
+        franchise = BenchmarkData.franchise(branches, products);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        // Tamaño de la última respuesta codificada, no un acumulado
+        public long bytes;
+    }
+
+    @Benchmark
+    public byte[] encode(Payload payload) throws IOException {
+        byte[] body = format.mapper.writeValueAsBytes(franchise);
+        if (gzip) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream compressed = new GZIPOutputStream(out)) {
+                compressed.write(body);
+            }
+            body = out.toByteArray();
+        }
+        payload.bytes = body.length;
+        return body;
+    }
+}
@@ -0,0 +1,47 @@
+package co.com.crm.constructora.franchiseapp.benchmark;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FranchiseJsonBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int branches;
+
+    @Param({"10", "100"})
+    private int products;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Franchise franchise;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        franchise = BenchmarkData.franchise(branches, products);
+        json = objectMapper.writeValueAsBytes(franchise);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(franchise);
+    }
+
+    @Benchmark
+    public Franchise deserialize() throws IOException {
+        return objectMapper.readValue(json, Franchise.class);
+    }
+}
@@ -0,0 +1,81 @@
+package co.com.crm.constructora.franchiseapp.benchmark;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.service.BulkStockUpdater;
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseLookup;
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseServiceImpl;
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.domain.service.OptimisticLockRetry;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchStockSummaryRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Mide el trabajo en la JVM de FranchiseServiceImpl con un repositorio en memoria, sin red ni Mongo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FranchiseServiceBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int branches;
+
+    @Param({"10", "100"})
+    private int products;
+
+    private FranchiseServiceImpl franchiseService;
+    private String lastBranchId;
+    private String lastProductId;
+
+    @Setup
+    public void setUp() {
+        Franchise franchise = BenchmarkData.franchise(branches, products);
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getMaxStock().setStrategy(FranchiseProperties.MaxStockStrategy.IN_MEMORY);
+        OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), franchiseProperties);
+
+        franchiseService = new FranchiseServiceImpl(BenchmarkData.repository(franchise), optimisticLockRetry,
+                franchiseProperties, new BulkStockUpdater(franchiseProperties, new LowStockAlerts(franchiseProperties)), new FranchiseLookup(),
+                BenchmarkData.unused(BranchStockSummaryRepository.class),
+                new LowStockAlerts(franchiseProperties), Optional.empty(), Optional.empty(), Optional.empty());
+        // La última sucursal y el último producto eran el peor caso de la búsqueda lineal
+        lastBranchId = "b" + (branches - 1);
+        lastProductId = "p" + (products - 1);
+    }
+
+    @Benchmark
+    public Product updateProductName() {
+        return franchiseService.updateProductName("f1", lastBranchId, lastProductId, "Renamed", null).block();
+    }
+
+    @Benchmark
+    public Product modifyProductStock() {
+        return franchiseService.modifyProductStock("f1", lastBranchId, lastProductId, 42, null).block();
+    }
+
+    @Benchmark
+    public Void deleteMissingProduct() {
+        return franchiseService.deleteProductFromBranch("f1", lastBranchId, "missing")
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    @Benchmark
+    public List<ProductWithBranch> getMaxStockProductsByFranchise() {
+        return franchiseService.getMaxStockProductsByFranchise("f1").block();
+    }
+}
@@ -0,0 +1,84 @@
+package co.com.crm.constructora.franchiseapp.benchmark;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.service.BulkStockUpdater;
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseLookup;
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseServiceImpl;
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.domain.service.OptimisticLockRetry;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchStockSummaryRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.FranchiseController;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.FranchiseReadHandler;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.FranchiseRouter;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Compara el despacho del controlador anotado con el de las rutas funcionales, en la JVM y sin red
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FranchiseWebBenchmark {
+
+    @Param({"annotated", "functional"})
+    private String dispatch;
+
+    @Param({"10", "1000"})
+    private int branches;
+
+    private WebTestClient webTestClient;
+
+    @Setup
+    public void setUp() {
+        Franchise franchise = BenchmarkData.franchise(branches, 10);
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getMaxStock().setStrategy(FranchiseProperties.MaxStockStrategy.IN_MEMORY);
+        OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), franchiseProperties);
+        FranchiseServiceImpl franchiseService = new FranchiseServiceImpl(BenchmarkData.repository(franchise),
+                optimisticLockRetry, franchiseProperties, new BulkStockUpdater(franchiseProperties, new LowStockAlerts(franchiseProperties)), new FranchiseLookup(),
+                BenchmarkData.unused(BranchStockSummaryRepository.class),
+                new LowStockAlerts(franchiseProperties), Optional.empty(), Optional.empty(), Optional.empty());
+
+        webTestClient = "functional".equals(dispatch)
+                ? WebTestClient.bindToRouterFunction(new FranchiseRouter()
+                        .franchiseReadRoutes(new FranchiseReadHandler(franchiseService, new ObjectMapper()))).build()
+                : WebTestClient.bindToController(new FranchiseController(franchiseService)).build();
+    }
+
+    @Benchmark
+    public byte[] getFranchiseById() {
+        return get("/franchises/f1");
+    }
+
+    @Benchmark
+    public byte[] getBranchesByFranchiseId() {
+        return get("/franchises/f1/branches");
+    }
+
+    @Benchmark
+    public byte[] getMaxStockProductsByFranchise() {
+        return get("/franchises/f1/products/max-stock");
+    }
+
+    private byte[] get(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .returnResult()
+                .getResponseBodyContent();
+    }
+}
@@ -2,8 +2,10 @@ package co.com.crm.constructora.franchiseapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class FranchiseAppApplication {
 
     public static void main(String[] args) {
@@ -1,8 +1,12 @@
 package co.com.crm.constructora.franchiseapp.domain.model;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -10,10 +14,46 @@ import java.util.List;
 @Document(collection = "franchises_collection")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Branch {
     private String id;
     private String name;
     private List<Product> products;
 
-}
\ No newline at end of file
+    // No se persiste ni se serializa: se construye en la primera búsqueda
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient IdIndex<Product> productIndex;
+
+    public Branch(String id, String name, List<Product> products) {
+        this.id = id;
+        this.name = name;
+        this.products = products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+        this.productIndex = null;
+    }
+
+    /**
+     * Busca un producto por id en O(1); devuelve null si no existe.
+     */
+    public Product findProduct(String productId) {
+        if (productIndex == null) {
+            productIndex = new IdIndex<>(Product::getId);
+        }
+        return productIndex.find(products, productId);
+    }
+
+    public boolean removeProduct(String productId) {
+        if (findProduct(productId) == null) {
+            return false;
+        }
+        products.removeIf(p -> productId.equals(p.getId()));
+        productIndex = null;
+        return true;
+    }
+
+}
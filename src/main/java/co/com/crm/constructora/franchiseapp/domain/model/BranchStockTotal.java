@@ -0,0 +1,19 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BranchStockTotal {
+    private String franchiseId;
+    private String franchiseName;
+    private String branchId;
+    private String branchName;
+    private long products;
+    // Productos con stock <= 0
+    private long outOfStock;
+    private long totalStock;
+}
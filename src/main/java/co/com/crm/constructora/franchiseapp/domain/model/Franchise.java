@@ -1,20 +1,55 @@
 package co.com.crm.constructora.franchiseapp.domain.model;
 
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "franchises_collection")
 public class Franchise {
     private String id;
     private String name;
     private List<Branch> branches;
+    @Version
+    private Long version;
 
-}
\ No newline at end of file
+    // No se persiste ni se serializa: se construye en la primera búsqueda
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient IdIndex<Branch> branchIndex;
+
+    public Franchise(String id, String name, List<Branch> branches, Long version) {
+        this.id = id;
+        this.name = name;
+        this.branches = branches;
+        this.version = version;
+    }
+
+    public void setBranches(List<Branch> branches) {
+        this.branches = branches;
+        this.branchIndex = null;
+    }
+
+    /**
+     * Busca una sucursal por id en O(1); devuelve null si no existe.
+     */
+    public Branch findBranch(String branchId) {
+        if (branchIndex == null) {
+            branchIndex = new IdIndex<>(Branch::getId);
+        }
+        return branchIndex.find(branches, branchId);
+    }
+
+}
@@ -0,0 +1,18 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FranchiseStockTotal {
+    private String franchiseId;
+    private String franchiseName;
+    private long branches;
+    private long products;
+    // Productos con stock <= 0
+    private long outOfStock;
+    private long totalStock;
+}
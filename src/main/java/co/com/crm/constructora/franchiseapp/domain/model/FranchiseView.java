@@ -0,0 +1,9 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+public enum FranchiseView {
+    // Solo id, nombre y versión
+    SUMMARY,
+    // Sucursales sin productos
+    BRANCHES,
+    FULL
+}
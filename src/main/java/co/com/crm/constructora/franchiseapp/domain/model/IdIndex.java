@@ -0,0 +1,60 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Índice por id sobre una lista del modelo: guarda la posición de cada id y comprueba el elemento que hay
+// ahí al buscar. Se reconstruye si la lista cambia de instancia o de tamaño, si en la posición ya no está
+// ese id, o ante un id no encontrado, que puede haber llegado al reemplazar un elemento
+final class IdIndex<T> {
+
+    private final Function<T, String> idOf;
+    private Map<String, Integer> positions;
+    private List<T> source;
+    private int indexedSize;
+
+    IdIndex(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    T find(List<T> items, String id) {
+        if (items == null || id == null) {
+            return null;
+        }
+        if (positions == null || source != items || indexedSize != items.size()) {
+            rebuild(items);
+            return lookup(items, id);
+        }
+        T item = lookup(items, id);
+        if (item == null) {
+            rebuild(items);
+            item = lookup(items, id);
+        }
+        return item;
+    }
+
+    private T lookup(List<T> items, String id) {
+        Integer position = positions.get(id);
+        if (position == null) {
+            return null;
+        }
+        T item = items.get(position);
+        return id.equals(idOf.apply(item)) ? item : null;
+    }
+
+    private void rebuild(List<T> items) {
+        Map<String, Integer> index = new HashMap<>(Math.max(16, (int) (items.size() / 0.75f) + 1));
+        for (int i = 0; i < items.size(); i++) {
+            String id = idOf.apply(items.get(i));
+            if (id != null) {
+                // Igual que findFirst: ante ids repetidos gana el primero
+                index.putIfAbsent(id, i);
+            }
+        }
+        this.positions = index;
+        this.source = items;
+        this.indexedSize = items.size();
+    }
+}
@@ -0,0 +1,24 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LowStockAlert {
+    private String franchiseId;
+    private String branchId;
+    private String productId;
+    private String productName;
+    private int stock;
+    private int threshold;
+    private Reason reason;
+
+    public enum Reason {
+        STOCK_CHANGED,
+        // El producto se borró con stock en el umbral o por encima: su stock pasa a 0
+        PRODUCT_REMOVED
+    }
+}
@@ -0,0 +1,24 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSearch {
+    private String query;
+    private Match match;
+    // Opcionales: null no filtra
+    private String franchiseId;
+    private Integer minStock;
+    private int limit;
+
+    public enum Match {
+        // Usa el índice de nombre sin distinguir mayúsculas
+        PREFIX,
+        // Subcadena sin distinguir mayúsculas; no puede usar el índice y recorre los candidatos
+        CONTAINS
+    }
+}
@@ -0,0 +1,16 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductWithFranchise {
+    private String franchiseId;
+    private String franchiseName;
+    private String branchId;
+    private String branchName;
+    private Product product;
+}
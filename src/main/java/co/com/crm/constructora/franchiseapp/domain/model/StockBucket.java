@@ -0,0 +1,26 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Productos con from <= stock < to; null en from o to indica que el rango no tiene límite por ese lado
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockBucket {
+    private Integer from;
+    private Integer to;
+    private long products;
+
+    public static boolean validBoundaries(List<Integer> boundaries) {
+        for (int i = 0; i < boundaries.size(); i++) {
+            if (boundaries.get(i) == null || (i > 0 && boundaries.get(i - 1) >= boundaries.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// Entrada del journal de stock; el índice TTL sobre at lo crea StockJournalIndexInitializer con franchise.journal.retention
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "stock_movements")
+@CompoundIndex(name = "franchise_branch_at_idx", def = "{'franchiseId': 1, 'branchId': 1, 'at': 1}")
+public class StockMovement {
+    @Id
+    @JsonIgnore
+    private String id;
+    private String franchiseId;
+    private String branchId;
+    private String productId;
+    private Type type;
+    // Stock resultante con SET, incremento con ADJUST, 0 con REMOVE
+    private int quantity;
+    private Instant at;
+
+    // at y el id los asigna StockJournal al registrar el movimiento
+    public static StockMovement set(String franchiseId, String branchId, String productId, int stock) {
+        return new StockMovement(null, franchiseId, branchId, productId, Type.SET, stock, null);
+    }
+
+    public static StockMovement set(StockUpdate update) {
+        return set(update.getFranchiseId(), update.getBranchId(), update.getProductId(), update.getStock());
+    }
+
+    public static StockMovement adjust(String franchiseId, String branchId, String productId, int delta) {
+        return new StockMovement(null, franchiseId, branchId, productId, Type.ADJUST, delta, null);
+    }
+
+    public static StockMovement remove(String franchiseId, String branchId, String productId) {
+        return new StockMovement(null, franchiseId, branchId, productId, Type.REMOVE, 0, null);
+    }
+
+    // Stock inicial de los productos de una sucursal nueva
+    public static List<StockMovement> created(String franchiseId, String branchId, List<Product> products) {
+        if (products == null) {
+            return List.of();
+        }
+        return products.stream()
+                .filter(product -> product.getId() != null)
+                .map(product -> set(franchiseId, branchId, product.getId(), product.getStock()))
+                .toList();
+    }
+
+    public static List<StockMovement> created(String franchiseId, List<Branch> branches) {
+        if (branches == null) {
+            return List.of();
+        }
+        return branches.stream()
+                .filter(branch -> branch.getId() != null)
+                .flatMap(branch -> created(franchiseId, branch.getId(), branch.getProducts()).stream())
+                .toList();
+    }
+
+    // Un REMOVE por producto de las sucursales de una franquicia borrada
+    public static List<StockMovement> removed(String franchiseId, List<Branch> branches) {
+        if (branches == null) {
+            return List.of();
+        }
+        return branches.stream()
+                .filter(branch -> branch.getId() != null && branch.getProducts() != null)
+                .flatMap(branch -> branch.getProducts().stream()
+                        .filter(product -> product.getId() != null)
+                        .map(product -> remove(franchiseId, branch.getId(), product.getId())))
+                .toList();
+    }
+
+    /**
+     * Aplica el movimiento sobre el stock por producto de una sucursal. Un ADJUST sobre un producto
+     * sin registro parte de 0.
+     */
+    public void applyTo(Map<String, Integer> stocks) {
+        switch (type) {
+            case SET -> stocks.put(productId, quantity);
+            case ADJUST -> stocks.merge(productId, quantity, Integer::sum);
+            case REMOVE -> stocks.remove(productId);
+        }
+    }
+
+    public enum Type {
+        SET,
+        ADJUST,
+        REMOVE
+    }
+}
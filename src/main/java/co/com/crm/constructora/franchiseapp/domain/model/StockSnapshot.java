@@ -0,0 +1,70 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Stock por producto de una sucursal en el instante at; también es la respuesta de la consulta histórica.
+// El índice TTL sobre supersededAt lo crea StockJournalIndexInitializer con franchise.journal.snapshot-retention
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "stock_snapshots")
+@CompoundIndex(name = "franchise_branch_at_idx", def = "{'franchiseId': 1, 'branchId': 1, 'at': -1}")
+public class StockSnapshot {
+    @Id
+    @JsonIgnore
+    private String id;
+    private String franchiseId;
+    private String branchId;
+    private Instant at;
+    // Una lista y no un mapa: los ids de producto no siempre son claves válidas en MongoDB
+    private List<ProductStock> products;
+    // Cuándo un snapshot posterior de la sucursal lo reemplazó; el índice TTL caduca por este campo
+    @JsonIgnore
+    private Instant supersededAt;
+
+    public static StockSnapshot of(String franchiseId, String branchId, Instant at, Map<String, Integer> stocks) {
+        List<ProductStock> products = new ArrayList<>(stocks.size());
+        stocks.forEach((productId, stock) -> products.add(new ProductStock(productId, stock)));
+        return new StockSnapshot(null, franchiseId, branchId, at, products, null);
+    }
+
+    // Stock actual de los productos de la sucursal: la base de una sucursal que existía antes del journal
+    public static StockSnapshot of(String franchiseId, Branch branch, Instant at) {
+        Map<String, Integer> stocks = new TreeMap<>();
+        if (branch.getProducts() != null) {
+            branch.getProducts().stream()
+                    .filter(product -> product.getId() != null)
+                    .forEach(product -> stocks.put(product.getId(), product.getStock()));
+        }
+        return of(franchiseId, branch.getId(), at, stocks);
+    }
+
+    // Ordenado por id de producto, para que el resultado de una reproducción sea estable
+    public Map<String, Integer> stocks() {
+        Map<String, Integer> stocks = new TreeMap<>();
+        if (products != null) {
+            products.forEach(product -> stocks.put(product.getProductId(), product.getStock()));
+        }
+        return stocks;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ProductStock {
+        private String productId;
+        private int stock;
+    }
+}
@@ -0,0 +1,19 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockUpdate {
+    private String franchiseId;
+    private String branchId;
+    private String productId;
+    private int stock;
+
+    public static String productKey(String branchId, String productId) {
+        return branchId + "/" + productId;
+    }
+}
@@ -0,0 +1,25 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockUpdateResult {
+    private String franchiseId;
+    private String branchId;
+    private String productId;
+    private Status status;
+
+    public static StockUpdateResult of(StockUpdate update, Status status) {
+        return new StockUpdateResult(update.getFranchiseId(), update.getBranchId(), update.getProductId(), status);
+    }
+
+    public enum Status {
+        UPDATED,
+        NOT_FOUND,
+        FAILED
+    }
+}
@@ -0,0 +1,9 @@
+package co.com.crm.constructora.franchiseapp.domain.model;
+
+// La franquicia cambió desde la versión que indicó el cliente en If-Match
+public class VersionMismatchException extends Exception {
+
+    public VersionMismatchException() {
+        super("Franchise version does not match");
+    }
+}
@@ -2,26 +2,60 @@ package co.com.crm.constructora.franchiseapp.domain.ports;
 
 
 import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
 import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
 import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
 import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface FranchiseService {
     Mono<Franchise> createFranchise(Franchise franchise);
     Mono<Franchise> getFranchiseById(String id);
+    Mono<Franchise> getFranchiseById(String id, FranchiseView view);
+    // Vacío si la franquicia no existe o aún no tiene versión
+    Mono<Long> getFranchiseVersion(String id);
+    // En el orden de ids, sin repetidos ni los que no existen; como mucho franchise.pagination.max-page-size ids
+    Flux<Franchise> getFranchisesByIds(List<String> ids, FranchiseView view);
     Flux<Franchise> getAllFranchises();
+    Flux<Franchise> getFranchisesPage(String afterId, Integer limit, FranchiseView view);
     Mono<Void> deleteFranchise(String id);
-    Mono<Franchise> addBranch(String franchiseId, Branch branch);
+    Mono<Branch> addBranch(String franchiseId, Branch branch);
+    Mono<Product> addProduct(String franchiseId, String branchId, Product product);
+    Flux<Product> addProducts(String franchiseId, String branchId, List<Product> products);
     Flux<Branch> getBranchesByFranchiseId(String franchiseId);
     Mono<List<ProductWithBranch>> getMaxStockProductsByFranchise(String franchiseId);
-    Mono<Franchise> updateFranchiseName(String franchiseId, String newName);
-    Mono<Branch> updateBranchName(String franchiseId, String branchId, String newName);
-    Mono<Product> updateProductName(String franchiseId, String branchId, String productId, String newName);
+    Flux<ProductWithFranchise> getMaxStockProducts();
+    Flux<ProductWithFranchise> searchProducts(String query, ProductSearch.Match match, String franchiseId, Integer minStock, Integer limit);
+    // Con expectedVersion != null la escritura falla con VersionMismatchException si la franquicia cambió
+    Mono<Franchise> updateFranchiseName(String franchiseId, String newName, Long expectedVersion);
+    Mono<Branch> updateBranchName(String franchiseId, String branchId, String newName, Long expectedVersion);
+    Mono<Product> updateProductName(String franchiseId, String branchId, String productId, String newName, Long expectedVersion);
     Mono<Void> deleteProductFromBranch(String franchiseId, String branchId, String productId);
-    Mono<Product> modifyProductStock(String franchiseId, String branchId, String productId, int newStock);
+    Mono<Product> modifyProductStock(String franchiseId, String branchId, String productId, int newStock, Long expectedVersion);
+    Mono<Void> setProductStock(String franchiseId, String branchId, String productId, int newStock);
+    Mono<Void> adjustProductStock(String franchiseId, String branchId, String productId, int delta);
+    Flux<StockUpdateResult> bulkUpdateStock(Flux<StockUpdate> updates);
+    Flux<LowStockAlert> lowStockAlerts();
+    Flux<FranchiseStockTotal> getFranchiseStockTotals();
+    Flux<BranchStockTotal> getBranchStockTotals(String franchiseId);
+    Flux<ProductWithFranchise> getTopStockProducts(Integer limit);
+    Flux<StockBucket> getStockHistogram(List<Integer> boundaries, String franchiseId);
+    // Requieren franchise.journal.enabled=true; at y until null son ahora
+    Mono<StockSnapshot> getBranchStockAt(String franchiseId, String branchId, Instant at);
+    Flux<StockMovement> getStockMovements(String franchiseId, String branchId, String productId, Instant after, Instant until);
 
 }
\ No newline at end of file
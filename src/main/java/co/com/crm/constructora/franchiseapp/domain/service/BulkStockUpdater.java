@@ -0,0 +1,108 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult.Status;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockBulkOperations;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Agrupa las actualizaciones de stock en lotes por franquicia y las aplica con un solo bulkWrite por lote
+@Component
+@AllArgsConstructor
+public class BulkStockUpdater {
+
+    private final FranchiseProperties franchiseProperties;
+    private final LowStockAlerts lowStockAlerts;
+
+    public Flux<StockUpdateResult> apply(Flux<StockUpdate> updates, StockBulkOperations operations) {
+        return apply(updates, operations, Optional.empty());
+    }
+
+    // Con journal, cada lote se escribe en su turno para sus productos y registra un SET por producto actualizado
+    // antes de que se emitan sus resultados.
+    // Los lotes se cortan por franquicia, así cada bulkWrite toca los documentos de una sola. Los resultados salen
+    // en el orden de los lotes, y el lote incompleto de cada franquicia se escribe al terminar la entrada
+    public Flux<StockUpdateResult> apply(Flux<StockUpdate> updates, StockBulkOperations operations,
+                                         Optional<StockJournal> stockJournal) {
+        FranchiseProperties.Bulk bulk = franchiseProperties.getBulk();
+        return updates
+                .groupBy(update -> String.valueOf(update.getFranchiseId()))
+                // Sin límite de grupos: con uno, más franquicias que el límite dejarían la entrada bloqueada
+                .flatMap(franchise -> franchise.buffer(bulk.getBatchSize()), Integer.MAX_VALUE)
+                .flatMapSequential(batch -> journaled(batch, write(batch, operations).collectList(), stockJournal)
+                        .flatMapIterable(results -> results), bulk.getConcurrency());
+    }
+
+    private static Mono<List<StockUpdateResult>> journaled(List<StockUpdate> batch, Mono<List<StockUpdateResult>> write,
+                                                           Optional<StockJournal> stockJournal) {
+        return stockJournal.map(journal -> journal.record(batch.stream().map(StockJournal::key).toList(), write,
+                        results -> updated(batch, results).stream().map(StockMovement::set).toList()))
+                .orElse(write);
+    }
+
+    // Si falla la lectura del stock previo solo se pierden las alertas del lote
+    private Flux<StockUpdateResult> write(List<StockUpdate> batch, StockBulkOperations operations) {
+        return lowStockAlerts.before(batch, true, operations)
+                .onErrorReturn(Map.of())
+                .flatMapMany(before -> bulkWrite(batch, operations)
+                        .collectList()
+                        .doOnNext(results -> lowStockAlerts.applied(before, updated(batch, results), true))
+                        .flatMapIterable(results -> results));
+    }
+
+    private Flux<StockUpdateResult> bulkWrite(List<StockUpdate> batch, StockBulkOperations operations) {
+        return operations.bulkSetProductStock(batch)
+                .flatMapMany(matched -> matched == batch.size()
+                        ? Flux.fromIterable(batch).map(update -> StockUpdateResult.of(update, Status.UPDATED))
+                        : verify(batch, Set.of(), operations))
+                .onErrorResume(BulkOperationException.class, e -> verify(batch, e.getErrors().stream()
+                        .map(BulkWriteError::getIndex)
+                        .collect(Collectors.toSet()), operations))
+                .onErrorResume(e -> Flux.fromIterable(batch).map(update -> StockUpdateResult.of(update, Status.FAILED)));
+    }
+
+    // Los resultados van en el mismo orden que el lote
+    private static List<StockUpdate> updated(List<StockUpdate> batch, List<StockUpdateResult> results) {
+        return IntStream.range(0, batch.size())
+                .filter(index -> results.get(index).getStatus() == Status.UPDATED)
+                .mapToObj(batch::get)
+                .toList();
+    }
+
+    // El resultado del bulkWrite solo trae totales; si no cuadran se consulta qué productos existen
+    private Flux<StockUpdateResult> verify(List<StockUpdate> batch, Set<Integer> failed, StockBulkOperations operations) {
+        Map<String, List<StockUpdate>> byFranchise = batch.stream()
+                .collect(Collectors.groupingBy(update -> String.valueOf(update.getFranchiseId()),
+                        LinkedHashMap::new, Collectors.toList()));
+
+        return Flux.fromIterable(byFranchise.entrySet())
+                .flatMap(entry -> operations.findExistingProductKeys(entry.getKey(), entry.getValue())
+                        .map(keys -> Map.entry(entry.getKey(), keys)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .flatMapMany(existing -> Flux.range(0, batch.size())
+                        .map(index -> {
+                            StockUpdate update = batch.get(index);
+                            if (failed.contains(index)) {
+                                return StockUpdateResult.of(update, Status.FAILED);
+                            }
+                            boolean found = existing.getOrDefault(String.valueOf(update.getFranchiseId()), Set.of())
+                                    .contains(StockUpdate.productKey(update.getBranchId(), update.getProductId()));
+                            return StockUpdateResult.of(update, found ? Status.UPDATED : Status.NOT_FOUND);
+                        }));
+    }
+}
@@ -0,0 +1,257 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Decora el servicio real con una caché local de franquicias; se activa con franchise.cache.enabled=true
+@Service
+@Primary
+@ConditionalOnProperty(name = "franchise.cache.enabled", havingValue = "true")
+public class CachingFranchiseService implements FranchiseService {
+
+    private final FranchiseService delegate;
+    private final AsyncCache<String, Franchise> cache;
+
+    public CachingFranchiseService(@Qualifier("franchiseServiceTarget") FranchiseService delegate,
+                                   FranchiseProperties franchiseProperties,
+                                   MeterRegistry meterRegistry,
+                                   Optional<StockWriteBehind> stockWriteBehind) {
+        FranchiseProperties.Cache settings = franchiseProperties.getCache();
+        this.delegate = delegate;
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(settings.getMaximumWeight())
+                .weigher((String id, Franchise franchise) -> weight(franchise))
+                .expireAfterWrite(settings.getTtl())
+                .recordStats()
+                .<String, Franchise>buildAsync(), "franchises");
+        // Con write-behind el stock cambia al escribir el lote, no al aceptarlo: una lectura intermedia
+        // habría guardado el valor anterior
+        stockWriteBehind.ifPresent(writeBehind -> writeBehind.onFlushed(ids -> ids.forEach(this::invalidate)));
+    }
+
+    @Override
+    public Mono<Franchise> createFranchise(Franchise franchise) {
+        return delegate.createFranchise(franchise)
+                .doOnNext(created -> invalidate(created.getId()));
+    }
+
+    // Las lecturas concurrentes del mismo id comparten el mismo futuro; un Mono vacío no se guarda
+    @Override
+    public Mono<Franchise> getFranchiseById(String id) {
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> delegate.getFranchiseById(key).toFuture()), true);
+    }
+
+    // Solo la vista completa pasa por la caché; las proyecciones ya son consultas baratas
+    @Override
+    public Mono<Franchise> getFranchiseById(String id, FranchiseView view) {
+        return view == FranchiseView.FULL ? getFranchiseById(id) : delegate.getFranchiseById(id, view);
+    }
+
+    // Con FULL, las que están en caché se sirven de ella y el resto se lee con una sola llamada al servicio real
+    @Override
+    public Flux<Franchise> getFranchisesByIds(List<String> ids, FranchiseView view) {
+        if (view != FranchiseView.FULL) {
+            return delegate.getFranchisesByIds(ids, view);
+        }
+        List<String> distinct = ids.stream().distinct().toList();
+        Set<String> misses = distinct.stream()
+                .filter(id -> cache.getIfPresent(id) == null)
+                .collect(Collectors.toSet());
+        Mono<Map<String, Franchise>> loaded = misses.isEmpty()
+                ? Mono.just(Map.of())
+                : delegate.getFranchisesByIds(distinct.stream().filter(misses::contains).toList(), view)
+                        .collectMap(Franchise::getId);
+        return loaded.flatMapMany(found -> Flux.fromIterable(distinct)
+                .concatMap(id -> misses.contains(id) ? Mono.justOrEmpty(found.get(id)) : getFranchiseById(id)));
+    }
+
+    // Con la franquicia en caché la versión sale de ella, la misma que tendría la respuesta servida desde la caché
+    @Override
+    public Mono<Long> getFranchiseVersion(String id) {
+        CompletableFuture<Franchise> cached = cache.getIfPresent(id);
+        return cached != null
+                ? Mono.fromFuture(cached, true).mapNotNull(Franchise::getVersion)
+                : delegate.getFranchiseVersion(id);
+    }
+
+    @Override
+    public Flux<Franchise> getAllFranchises() {
+        return delegate.getAllFranchises();
+    }
+
+    @Override
+    public Flux<Franchise> getFranchisesPage(String afterId, Integer limit, FranchiseView view) {
+        return delegate.getFranchisesPage(afterId, limit, view);
+    }
+
+    @Override
+    public Mono<Void> deleteFranchise(String id) {
+        return invalidating(id, delegate.deleteFranchise(id));
+    }
+
+    @Override
+    public Mono<Branch> addBranch(String franchiseId, Branch branch) {
+        return invalidating(franchiseId, delegate.addBranch(franchiseId, branch));
+    }
+
+    @Override
+    public Mono<Product> addProduct(String franchiseId, String branchId, Product product) {
+        return invalidating(franchiseId, delegate.addProduct(franchiseId, branchId, product));
+    }
+
+    @Override
+    public Flux<Product> addProducts(String franchiseId, String branchId, List<Product> products) {
+        return delegate.addProducts(franchiseId, branchId, products)
+                .doFinally(signal -> invalidate(franchiseId));
+    }
+
+    @Override
+    public Flux<Branch> getBranchesByFranchiseId(String franchiseId) {
+        return getFranchiseById(franchiseId)
+                .flatMapIterable(franchise -> Optional.ofNullable(franchise.getBranches()).orElseGet(List::of));
+    }
+
+    @Override
+    public Mono<List<ProductWithBranch>> getMaxStockProductsByFranchise(String franchiseId) {
+        return delegate.getMaxStockProductsByFranchise(franchiseId);
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> getMaxStockProducts() {
+        return delegate.getMaxStockProducts();
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> searchProducts(String query, ProductSearch.Match match, String franchiseId, Integer minStock, Integer limit) {
+        return delegate.searchProducts(query, match, franchiseId, minStock, limit);
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName, Long expectedVersion) {
+        return invalidating(franchiseId, delegate.updateFranchiseName(franchiseId, newName, expectedVersion));
+    }
+
+    @Override
+    public Mono<Branch> updateBranchName(String franchiseId, String branchId, String newName, Long expectedVersion) {
+        return invalidating(franchiseId, delegate.updateBranchName(franchiseId, branchId, newName, expectedVersion));
+    }
+
+    @Override
+    public Mono<Product> updateProductName(String franchiseId, String branchId, String productId, String newName, Long expectedVersion) {
+        return invalidating(franchiseId, delegate.updateProductName(franchiseId, branchId, productId, newName, expectedVersion));
+    }
+
+    @Override
+    public Mono<Void> deleteProductFromBranch(String franchiseId, String branchId, String productId) {
+        return invalidating(franchiseId, delegate.deleteProductFromBranch(franchiseId, branchId, productId));
+    }
+
+    @Override
+    public Mono<Product> modifyProductStock(String franchiseId, String branchId, String productId, int newStock, Long expectedVersion) {
+        return invalidating(franchiseId, delegate.modifyProductStock(franchiseId, branchId, productId, newStock, expectedVersion));
+    }
+
+    @Override
+    public Mono<Void> setProductStock(String franchiseId, String branchId, String productId, int newStock) {
+        return invalidating(franchiseId, delegate.setProductStock(franchiseId, branchId, productId, newStock));
+    }
+
+    @Override
+    public Mono<Void> adjustProductStock(String franchiseId, String branchId, String productId, int delta) {
+        return invalidating(franchiseId, delegate.adjustProductStock(franchiseId, branchId, productId, delta));
+    }
+
+    @Override
+    public Flux<StockUpdateResult> bulkUpdateStock(Flux<StockUpdate> updates) {
+        return delegate.bulkUpdateStock(updates)
+                .doOnNext(result -> invalidate(result.getFranchiseId()));
+    }
+
+    @Override
+    public Flux<LowStockAlert> lowStockAlerts() {
+        return delegate.lowStockAlerts();
+    }
+
+    @Override
+    public Flux<FranchiseStockTotal> getFranchiseStockTotals() {
+        return delegate.getFranchiseStockTotals();
+    }
+
+    @Override
+    public Flux<BranchStockTotal> getBranchStockTotals(String franchiseId) {
+        return delegate.getBranchStockTotals(franchiseId);
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> getTopStockProducts(Integer limit) {
+        return delegate.getTopStockProducts(limit);
+    }
+
+    @Override
+    public Flux<StockBucket> getStockHistogram(List<Integer> boundaries, String franchiseId) {
+        return delegate.getStockHistogram(boundaries, franchiseId);
+    }
+
+    @Override
+    public Mono<StockSnapshot> getBranchStockAt(String franchiseId, String branchId, Instant at) {
+        return delegate.getBranchStockAt(franchiseId, branchId, at);
+    }
+
+    @Override
+    public Flux<StockMovement> getStockMovements(String franchiseId, String branchId, String productId, Instant after, Instant until) {
+        return delegate.getStockMovements(franchiseId, branchId, productId, after, until);
+    }
+
+    // Se invalida también si la escritura falla, porque pudo haberse aplicado antes del error
+    private <T> Mono<T> invalidating(String franchiseId, Mono<T> mutation) {
+        return mutation.doFinally(signal -> invalidate(franchiseId));
+    }
+
+    private void invalidate(String franchiseId) {
+        if (franchiseId != null) {
+            cache.synchronous().invalidate(franchiseId);
+        }
+    }
+
+    static int weight(Franchise franchise) {
+        List<Branch> branches = Optional.ofNullable(franchise.getBranches()).orElseGet(List::of);
+        int weight = 1 + branches.size();
+        for (Branch branch : branches) {
+            weight += branch.getProducts() == null ? 0 : branch.getProducts().size();
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,143 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Agrupa las lecturas de franquicias por id, al estilo DataLoader: las llamadas que llegan dentro de una
+ * ventana se resuelven con una sola consulta $in por vista, en lotes de hasta maxBatch ids, así N lecturas
+ * concurrentes cuestan un viaje a la base de datos. Cada lectura espera como mucho window más la consulta.
+ * <p>
+ * Los llamadores que piden el mismo id en la misma ventana comparten la consulta pero no la instancia: cada uno
+ * recibe su propia copia, porque el layout normalizado le asigna las sucursales después. Si la consulta falla,
+ * falla cada lectura del lote.
+ * <p>
+ * En el layout embebido se lee con franchise.mongo.read-preference, como las demás lecturas de los GET; en el
+ * normalizado siempre del primario.
+ */
+public class FranchiseBatchLoader implements AutoCloseable {
+
+    private final FranchiseRepository franchiseRepository;
+    private final FranchiseProperties.ReadBatching config;
+    private final ReadPreference readPreference;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Sinks.Many<Boolean> sizeTrigger = Sinks.many().multicast().directBestEffort();
+    private final DistributionSummary batchSize;
+    private final Disposable dispatchLoop;
+
+    public FranchiseBatchLoader(FranchiseRepository franchiseRepository, FranchiseProperties franchiseProperties,
+                                MeterRegistry meterRegistry) {
+        this.franchiseRepository = franchiseRepository;
+        this.config = franchiseProperties.getReadBatching();
+        this.readPreference = franchiseProperties.getStorage().getLayout() == FranchiseProperties.StorageLayout.NORMALIZED
+                ? ReadPreference.primary()
+                : franchiseProperties.getMongo().queryReadPreference();
+        this.batchSize = DistributionSummary.builder("franchise.read.batch.size")
+                .description("Distinct franchise ids resolved by one batched query")
+                .register(meterRegistry);
+
+        this.dispatchLoop = Flux.merge(Flux.interval(config.getWindow()).map(tick -> true), sizeTrigger.asFlux())
+                .onBackpressureDrop()
+                .flatMap(trigger -> dispatch(), config.getConcurrency())
+                .subscribe();
+    }
+
+    // Vacío si la franquicia no existe
+    public Mono<Franchise> load(String id, FranchiseView view) {
+        return Mono.create(sink -> {
+            queue.add(new Pending(id, view, sink));
+            if (pending.incrementAndGet() >= config.getMaxBatch()) {
+                sizeTrigger.tryEmitNext(true);
+            }
+        });
+    }
+
+    /**
+     * Resuelve todas las lecturas en espera. Nunca termina en error: los errores se entregan a cada lectura.
+     */
+    public Mono<Void> dispatch() {
+        return Mono.defer(() -> {
+            List<Pending> drained = new ArrayList<>();
+            Pending next;
+            while ((next = queue.poll()) != null) {
+                drained.add(next);
+            }
+            if (drained.isEmpty()) {
+                return Mono.empty();
+            }
+            pending.addAndGet(-drained.size());
+            Map<FranchiseView, List<Pending>> byView = drained.stream()
+                    .collect(Collectors.groupingBy(Pending::view, () -> new EnumMap<>(FranchiseView.class), Collectors.toList()));
+            return Flux.fromIterable(byView.entrySet())
+                    .concatMap(entry -> Flux.fromIterable(entry.getValue())
+                            .buffer(config.getMaxBatch())
+                            .map(batch -> Map.entry(entry.getKey(), batch)))
+                    .flatMap(batch -> resolve(batch.getKey(), batch.getValue()))
+                    .then();
+        });
+    }
+
+    @Override
+    public void close() {
+        dispatchLoop.dispose();
+        dispatch().block(config.getShutdownTimeout());
+    }
+
+    private Mono<Void> resolve(FranchiseView view, List<Pending> batch) {
+        Set<String> ids = batch.stream().map(Pending::id).collect(Collectors.toSet());
+        batchSize.record(ids.size());
+        return franchiseRepository.findByIds(ids, view, readPreference)
+                .collectMap(Franchise::getId)
+                .doOnNext(found -> {
+                    Set<String> delivered = new HashSet<>();
+                    batch.forEach(read -> {
+                        Franchise franchise = found.get(read.id());
+                        if (franchise == null) {
+                            read.sink().success();
+                        } else {
+                            read.sink().success(delivered.add(read.id()) ? franchise : copy(franchise));
+                        }
+                    });
+                })
+                .onErrorResume(e -> {
+                    batch.forEach(read -> read.sink().error(e));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Las sucursales y productos se comparten: los servicios solo reemplazan la lista de sucursales
+    private static Franchise copy(Franchise franchise) {
+        Franchise copy = new Franchise();
+        copy.setId(franchise.getId());
+        copy.setName(franchise.getName());
+        copy.setVersion(franchise.getVersion());
+        copy.setBranches(franchise.getBranches() == null ? null : new ArrayList<>(franchise.getBranches()));
+        return copy;
+    }
+
+    record Pending(String id, FranchiseView view, MonoSink<Franchise> sink) {
+    }
+}
@@ -0,0 +1,38 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Búsquedas por id dentro de una franquicia ya cargada, con los mismos errores que exponía el servicio
+@Component
+public class FranchiseLookup {
+
+    public Mono<Branch> branch(Franchise franchise, String branchId) {
+        Branch branch = franchise.findBranch(branchId);
+        if (branch == null) {
+            return Mono.error(new Exception("Branch not found in this franchise"));
+        }
+        return Mono.just(branch);
+    }
+
+    public Mono<Product> product(Franchise franchise, String branchId, String productId) {
+        return branch(franchise, branchId)
+                .flatMap(branch -> {
+                    Product product = branch.findProduct(productId);
+                    if (product == null) {
+                        return Mono.error(new Exception("Product not found in this branch"));
+                    }
+                    return Mono.just(product);
+                });
+    }
+
+    public Mono<Void> removeProduct(Franchise franchise, String branchId, String productId) {
+        return branch(franchise, branchId)
+                .flatMap(branch -> branch.removeProduct(productId)
+                        ? Mono.<Void>empty()
+                        : Mono.error(new Exception("Product not found in this branch")));
+    }
+}
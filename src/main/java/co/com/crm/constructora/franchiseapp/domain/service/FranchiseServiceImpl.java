@@ -1,37 +1,93 @@
 package co.com.crm.constructora.franchiseapp.domain.service;
 
 import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
 import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
 import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
 import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.model.VersionMismatchException;
 import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchStockSummaryRepository;
 import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties.MaxStockStrategy;
 
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
+@Qualifier("franchiseServiceTarget")
 @AllArgsConstructor
+@ConditionalOnProperty(name = "franchise.storage.layout", havingValue = "embedded", matchIfMissing = true)
 public class FranchiseServiceImpl implements FranchiseService {
 
     private final FranchiseRepository franchiseRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final FranchiseProperties franchiseProperties;
+    private final BulkStockUpdater bulkStockUpdater;
+    private final FranchiseLookup franchiseLookup;
+    private final BranchStockSummaryRepository branchStockSummaryRepository;
+    private final LowStockAlerts lowStockAlerts;
+    // Presente con franchise.write-behind.enabled=true
+    private final Optional<StockWriteBehind> stockWriteBehind;
+    // Presente con franchise.journal.enabled=true
+    private final Optional<StockJournal> stockJournal;
+    // Presente con franchise.read-batching.enabled=true
+    private final Optional<FranchiseBatchLoader> franchiseBatchLoader;
 
 
     @Override
     public Mono<Franchise> createFranchise(Franchise franchise) {
-        return franchiseRepository.save(franchise);
+        return franchiseRepository.save(franchise)
+                .flatMap(saved -> branchesCreated(saved.getId(), saved.getBranches()).thenReturn(saved));
     }
 
+    // Las lecturas de los GET usan la consulta con vista, que aplica franchise.mongo.read-preference;
+    // los métodos que modifican la franquicia la leen con findById(id), siempre del primario
     @Override
     public Mono<Franchise> getFranchiseById(String id) {
-        return franchiseRepository.findById(id);
+        return getFranchiseById(id, FranchiseView.FULL);
+    }
+
+    @Override
+    public Mono<Franchise> getFranchiseById(String id, FranchiseView view) {
+        return franchiseBatchLoader.map(loader -> loader.load(id, view))
+                .orElseGet(() -> franchiseRepository.findById(id, view));
+    }
+
+    @Override
+    public Flux<Franchise> getFranchisesByIds(List<String> ids, FranchiseView view) {
+        if (ids.size() > franchiseProperties.getPagination().getMaxPageSize()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many franchise ids"));
+        }
+        return ids.isEmpty() ? Flux.empty() : franchiseRepository.findByIds(ids, view);
+    }
+
+    @Override
+    public Mono<Long> getFranchiseVersion(String id) {
+        return franchiseRepository.findVersion(id);
     }
 
     @Override
@@ -39,167 +95,336 @@ public class FranchiseServiceImpl implements FranchiseService {
         return franchiseRepository.findAll();
     }
 
+    @Override
+    public Flux<Franchise> getFranchisesPage(String afterId, Integer limit, FranchiseView view) {
+        return franchiseRepository.findPage(afterId, franchiseProperties.getPagination().pageSize(limit), view);
+    }
+
 
+    // Con journal, un REMOVE por producto: si no, la reconstrucción seguiría mostrando su stock
     @Override
     public Mono<Void> deleteFranchise(String id) {
-        return franchiseRepository.deleteById(id);
+        return stockJournal.map(journal -> franchiseRepository.findById(id)
+                        .flatMap(franchise -> franchiseRepository.deleteById(id)
+                                .then(journal.append(StockMovement.removed(id, franchise.getBranches())))))
+                .orElseGet(() -> franchiseRepository.deleteById(id));
     }
 
 
+    // Los ids se generan en el servidor y la sucursal se agrega con $push, sin cargar la franquicia
     @Override
-    public Mono<Franchise> addBranch(String franchiseId, Branch branch) {
-        return franchiseRepository.findById(franchiseId)
-                .flatMap(franchise -> {
-                    List<Branch> branches = Optional.ofNullable(franchise.getBranches())
-                            .orElseGet(ArrayList::new);
-                    branches.add(branch);
-                    franchise.setBranches(branches);
-                    return franchiseRepository.save(franchise);
-                })
-                .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
+    public Mono<Branch> addBranch(String franchiseId, Branch branch) {
+        if (branch.getId() == null) {
+            branch.setId(UUID.randomUUID().toString());
+        }
+        List<Product> products = Optional.ofNullable(branch.getProducts()).orElseGet(List::of);
+        products.forEach(FranchiseServiceImpl::assignId);
+        if (hasDuplicateIds(products)) {
+            return Mono.error(duplicateProductIds());
+        }
+        return franchiseRepository.pushBranch(franchiseId, branch)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.defer(() -> franchiseRepository.existsById(franchiseId)
+                        .flatMap(franchiseExists -> Mono.<Boolean>error(franchiseExists
+                                ? new ResponseStatusException(HttpStatus.CONFLICT, "Branch id already exists in this franchise")
+                                : new Exception("Franchise not found")))))
+                .then(Mono.defer(() -> branchesCreated(franchiseId, List.of(branch))))
+                .thenReturn(branch);
+    }
+
+    @Override
+    public Mono<Product> addProduct(String franchiseId, String branchId, Product product) {
+        return addProducts(franchiseId, branchId, List.of(product)).single();
+    }
+
+    @Override
+    public Flux<Product> addProducts(String franchiseId, String branchId, List<Product> products) {
+        if (products.isEmpty()) {
+            return Flux.empty();
+        }
+        products.forEach(FranchiseServiceImpl::assignId);
+        if (hasDuplicateIds(products)) {
+            return Flux.error(duplicateProductIds());
+        }
+        return franchiseRepository.pushProducts(franchiseId, branchId, products)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.defer(() -> franchiseRepository.existsByIdAndBranchesId(franchiseId, branchId)
+                        .flatMap(branchExists -> branchExists
+                                ? Mono.<Boolean>error(new ResponseStatusException(HttpStatus.CONFLICT,
+                                        "Product id already exists in this branch"))
+                                : franchiseRepository.existsById(franchiseId)
+                                        .flatMap(franchiseExists -> Mono.<Boolean>error(new Exception(franchiseExists
+                                                ? "Branch not found in this franchise"
+                                                : "Franchise not found"))))))
+                .then(Mono.defer(() -> journal(StockMovement.created(franchiseId, branchId, products))))
+                .thenMany(Flux.fromIterable(products));
     }
 
     @Override
     public Flux<Branch> getBranchesByFranchiseId(String franchiseId) {
-        return franchiseRepository.findById(franchiseId)
+        return franchiseRepository.findById(franchiseId, FranchiseView.FULL)
                 .flatMapMany(franchise -> Flux.fromIterable(franchise.getBranches()));
     }
 
     @Override
     public Mono<List<ProductWithBranch>> getMaxStockProductsByFranchise(String franchiseId) {
-        return franchiseRepository.findById(franchiseId)
-                .flatMap(franchise -> Flux.fromIterable(franchise.getBranches())
-                        .flatMap(branch -> {
-                            if (branch.getProducts() == null || branch.getProducts().isEmpty()) {
-                                return Mono.empty();
-                            }
-
-                            return Mono.just(branch.getProducts().stream()
-                                            .max(Comparator.comparingInt(Product::getStock))
-                                            .orElse(null))
-                                    .map(product -> new ProductWithBranch(branch.getName(), product));
-                        })
-                        .collectList()
-                )
+        if (franchiseProperties.getMaxStock().getStrategy() == MaxStockStrategy.IN_MEMORY) {
+            return franchiseRepository.findById(franchiseId)
+                    .flatMap(franchise -> Flux.fromIterable(franchise.getBranches())
+                            .concatMap(branch -> maxStockProduct(branch)
+                                    .map(product -> new ProductWithBranch(branch.getName(), product)))
+                            .collectList())
+                    .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
+        }
+
+        Flux<ProductWithBranch> products = franchiseProperties.getMaxStock().getStrategy() == MaxStockStrategy.MATERIALIZED
+                ? branchStockSummaryRepository.findByFranchiseIdOrderByBranchIndexAsc(franchiseId)
+                        .filter(summary -> summary.getMaxStockProduct() != null)
+                        .map(summary -> new ProductWithBranch(summary.getBranchName(), summary.getMaxStockProduct()))
+                : franchiseRepository.findMaxStockProductsByFranchise(franchiseId);
+
+        // Una franquicia sin productos y una inexistente devuelven lo mismo en la agregación y en la vista
+        return products
+                .collectList()
+                .filterWhen(products -> products.isEmpty()
+                        ? franchiseRepository.existsById(franchiseId)
+                        : Mono.just(true))
                 .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
     }
 
     @Override
-    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName) {
+    public Flux<ProductWithFranchise> getMaxStockProducts() {
+        if (franchiseProperties.getMaxStock().getStrategy() == MaxStockStrategy.IN_MEMORY) {
+            return franchiseRepository.findAll()
+                    .concatMap(franchise -> Flux.fromIterable(Optional.ofNullable(franchise.getBranches()).orElseGet(List::of))
+                            .concatMap(branch -> maxStockProduct(branch)
+                                    .map(product -> new ProductWithFranchise(franchise.getId(), franchise.getName(),
+                                            branch.getId(), branch.getName(), product))));
+        }
+        if (franchiseProperties.getMaxStock().getStrategy() == MaxStockStrategy.MATERIALIZED) {
+            return branchStockSummaryRepository.findAllByOrderByFranchiseIdAscBranchIndexAsc()
+                    .filter(summary -> summary.getMaxStockProduct() != null)
+                    .map(summary -> new ProductWithFranchise(summary.getFranchiseId(), summary.getFranchiseName(),
+                            summary.getBranchId(), summary.getBranchName(), summary.getMaxStockProduct()));
+        }
+        return franchiseRepository.findMaxStockProducts();
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> searchProducts(String query, ProductSearch.Match match, String franchiseId, Integer minStock, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return Flux.error(new Exception("Search query must not be blank"));
+        }
+        return franchiseRepository.searchProducts(new ProductSearch(query, match, franchiseId, minStock,
+                franchiseProperties.getPagination().pageSize(limit)));
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName, Long expectedVersion) {
         return franchiseRepository.findById(franchiseId)
+                .flatMap(franchise -> expectVersion(franchise, expectedVersion))
                 .flatMap(franchise -> {
                     franchise.setName(newName);
                     return franchiseRepository.save(franchise);
                 })
-                .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
+                .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                .transform(optimisticLockRetry::apply);
     }
 
     @Override
-    public Mono<Branch> updateBranchName(String franchiseId, String branchId, String newName) {
+    public Mono<Branch> updateBranchName(String franchiseId, String branchId, String newName, Long expectedVersion) {
         return franchiseRepository.findById(franchiseId)
-                .flatMap(franchise -> {
-                    Optional<Branch> optionalBranch = franchise.getBranches().stream()
-                            .filter(b -> b.getId().equals(branchId))
-                            .findFirst();
-
-                    if (optionalBranch.isPresent()) {
-                        Branch branch = optionalBranch.get();
-                        branch.setName(newName);
-                        return franchiseRepository.save(franchise)
-                                .thenReturn(branch);
-                    } else {
-                        return Mono.error(new Exception("Branch not found in this franchise"));
-                    }
-                })
-                .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
+                .flatMap(franchise -> expectVersion(franchise, expectedVersion))
+                .flatMap(franchise -> franchiseLookup.branch(franchise, branchId)
+                        .flatMap(branch -> {
+                            branch.setName(newName);
+                            return franchiseRepository.save(franchise)
+                                    .thenReturn(branch);
+                        }))
+                .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                .transform(optimisticLockRetry::apply);
     }
 
     @Override
-    public Mono<Product> updateProductName(String franchiseId, String branchId, String productId, String newName) {
+    public Mono<Product> updateProductName(String franchiseId, String branchId, String productId, String newName, Long expectedVersion) {
         return franchiseRepository.findById(franchiseId)
-                .flatMap(franchise -> {
-                    Optional<Branch> optionalBranch = franchise.getBranches().stream()
-                            .filter(b -> b.getId().equals(branchId))
-                            .findFirst();
-
-                    if (optionalBranch.isPresent()) {
-                        Branch branch = optionalBranch.get();
-                        Optional<Product> optionalProduct = branch.getProducts().stream()
-                                .filter(p -> p.getId().equals(productId))
-                                .findFirst();
-
-                        if (optionalProduct.isPresent()) {
-                            Product product = optionalProduct.get();
+                .flatMap(franchise -> expectVersion(franchise, expectedVersion))
+                .flatMap(franchise -> franchiseLookup.product(franchise, branchId, productId)
+                        .flatMap(product -> {
                             product.setName(newName);
                             return franchiseRepository.save(franchise)
                                     .thenReturn(product);
-                        } else {
-                            return Mono.error(new Exception("Product not found in this branch"));
-                        }
-                    } else {
-                        return Mono.error(new Exception("Branch not found in this franchise"));
-                    }
-                })
-                .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
+                        }))
+                .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                .transform(optimisticLockRetry::apply);
     }
 
     @Override
     public Mono<Void> deleteProductFromBranch(String franchiseId, String branchId, String productId) {
-        return franchiseRepository.findById(franchiseId)
-                .flatMap(franchise -> {
+        return journaled(franchiseId, branchId, productId, franchiseRepository.findById(franchiseId)
+                        .flatMap(franchise -> franchiseLookup.product(franchise, branchId, productId)
+                                .flatMap(product -> franchiseLookup.removeProduct(franchise, branchId, productId)
+                                        .then(Mono.defer(() -> franchiseRepository.save(franchise)))
+                                        .thenReturn(product)))
+                        .transform(optimisticLockRetry::apply)
+                        .doOnNext(removed -> lowStockAlerts.productRemoved(franchiseId, branchId, removed)),
+                        StockMovement.remove(franchiseId, branchId, productId))
+                .then();
+    }
+
+    @Override
+    public Mono<Product> modifyProductStock(String franchiseId, String branchId, String productId, int newStock, Long expectedVersion) {
+        return journaled(franchiseId, branchId, productId, franchiseRepository.findById(franchiseId)
+                        .flatMap(franchise -> expectVersion(franchise, expectedVersion))
+                        .flatMap(franchise -> franchiseLookup.product(franchise, branchId, productId)
+                                .flatMap(product -> {
+                                    Product before = new Product(product.getId(), product.getName(), product.getStock());
+                                    product.setStock(newStock);
+                                    return franchiseRepository.save(franchise)
+                                            .doOnSuccess(saved -> lowStockAlerts.stockChanged(franchiseId, branchId, before, newStock))
+                                            .thenReturn(product);
+                                }))
+                        .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                        .transform(optimisticLockRetry::apply),
+                        StockMovement.set(franchiseId, branchId, productId, newStock));
+    }
 
-                    Optional<Branch> optionalBranch = franchise.getBranches().stream()
-                            .filter(b -> b.getId().equals(branchId))
-                            .findFirst();
+    // Si otro escritor cambia la versión entre la comparación y el save, @Version rechaza el save
+    // y el reintento vuelve a leer y a comparar
+    private static Mono<Franchise> expectVersion(Franchise franchise, Long expectedVersion) {
+        return expectedVersion == null || expectedVersion.equals(franchise.getVersion())
+                ? Mono.just(franchise)
+                : Mono.error(new VersionMismatchException());
+    }
 
-                    if (optionalBranch.isPresent()) {
-                        Branch branch = optionalBranch.get();
+    private static void assignId(Product product) {
+        if (product.getId() == null) {
+            product.setId(UUID.randomUUID().toString());
+        }
+    }
 
-                        boolean removed = branch.getProducts().removeIf(p -> p.getId().equals(productId));
-                        if (!removed) {
-                            return Mono.error(new Exception("Product not found in this branch"));
-                        }
+    private static boolean hasDuplicateIds(List<Product> products) {
+        return products.stream().map(Product::getId).distinct().count() < products.size();
+    }
 
-                        return franchiseRepository.save(franchise)
-                                .then();
-                    } else {
-                        return Mono.error(new Exception("Branch not found in this franchise"));
-                    }
-                });
+    private static ResponseStatusException duplicateProductIds() {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Product ids must be unique within a branch");
+    }
 
+    private Mono<Product> maxStockProduct(Branch branch) {
+        if (branch.getProducts() == null || branch.getProducts().isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.justOrEmpty(branch.getProducts().stream()
+                .max(Comparator.comparingInt(Product::getStock)));
+    }
 
+    // Con write-behind los movimientos los registra el flush, solo los de los cambios que aplicó
+    @Override
+    public Mono<Void> setProductStock(String franchiseId, String branchId, String productId, int newStock) {
+        if (stockWriteBehind.isPresent()) {
+            return stockWriteBehind.get().set(franchiseId, branchId, productId, newStock);
+        }
+        return journaled(franchiseId, branchId, productId, writeStock(franchiseId, branchId, productId, newStock, true),
+                StockMovement.set(franchiseId, branchId, productId, newStock));
     }
+
     @Override
-    public Mono<Product> modifyProductStock(String franchiseId, String branchId, String productId, int newStock) {
-        return franchiseRepository.findById(franchiseId)
-                .flatMap(franchise -> {
-                    // Buscar la rama dentro de la franquicia
-                    Optional<Branch> optionalBranch = franchise.getBranches().stream()
-                            .filter(b -> b.getId().equals(branchId))
-                            .findFirst();
+    public Mono<Void> adjustProductStock(String franchiseId, String branchId, String productId, int delta) {
+        if (stockWriteBehind.isPresent()) {
+            return stockWriteBehind.get().adjust(franchiseId, branchId, productId, delta);
+        }
+        return journaled(franchiseId, branchId, productId, writeStock(franchiseId, branchId, productId, delta, false),
+                StockMovement.adjust(franchiseId, branchId, productId, delta));
+    }
 
-                    if (optionalBranch.isPresent()) {
-                        Branch branch = optionalBranch.get();
+    // Solo las escrituras que pueden dejar el producto bajo el umbral leen el stock previo
+    private Mono<Void> writeStock(String franchiseId, String branchId, String productId, int stock, boolean absolute) {
+        if (!lowStockAlerts.mayCross(stock, absolute)) {
+            return (absolute
+                    ? franchiseRepository.setProductStock(franchiseId, branchId, productId, stock)
+                    : franchiseRepository.incrementProductStock(franchiseId, branchId, productId, stock))
+                    .filter(Boolean::booleanValue)
+                    .switchIfEmpty(Mono.error(new Exception("Franchise, branch or product not found")))
+                    .then();
+        }
+        return (absolute
+                ? franchiseRepository.findAndSetProductStock(franchiseId, branchId, productId, stock)
+                : franchiseRepository.findAndIncrementProductStock(franchiseId, branchId, productId, stock))
+                .switchIfEmpty(Mono.error(new Exception("Franchise, branch or product not found")))
+                .doOnNext(before -> lowStockAlerts.stockChanged(franchiseId, branchId, before,
+                        absolute ? stock : before.getStock() + stock))
+                .then();
+    }
 
-                        // Buscar el producto dentro de la rama
-                        Optional<Product> optionalProduct = branch.getProducts().stream()
-                                .filter(p -> p.getId().equals(productId))
-                                .findFirst();
+    @Override
+    public Flux<StockUpdateResult> bulkUpdateStock(Flux<StockUpdate> updates) {
+        return bulkStockUpdater.apply(updates, franchiseRepository, stockJournal);
+    }
 
-                        if (optionalProduct.isPresent()) {
-                            Product product = optionalProduct.get();
-                            product.setStock(newStock);
+    @Override
+    public Flux<LowStockAlert> lowStockAlerts() {
+        return lowStockAlerts.stream();
+    }
 
-                            return franchiseRepository.save(franchise)
-                                    .thenReturn(product);
-                        } else {
-                            return Mono.error(new Exception("Product not found in this branch"));
-                        }
-                    } else {
-                        return Mono.error(new Exception("Branch not found in this franchise"));
-                    }
-                })
-                .switchIfEmpty(Mono.error(new Exception("Franchise not found")));
+    @Override
+    public Flux<FranchiseStockTotal> getFranchiseStockTotals() {
+        return franchiseRepository.franchiseStockTotals();
+    }
+
+    @Override
+    public Flux<BranchStockTotal> getBranchStockTotals(String franchiseId) {
+        return franchiseRepository.branchStockTotals(franchiseId);
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> getTopStockProducts(Integer limit) {
+        return franchiseRepository.topStockProducts(franchiseProperties.getPagination().pageSize(limit));
+    }
+
+    @Override
+    public Flux<StockBucket> getStockHistogram(List<Integer> boundaries, String franchiseId) {
+        List<Integer> bounds = franchiseProperties.getAnalytics().boundaries(boundaries);
+        if (!StockBucket.validBoundaries(bounds)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Histogram boundaries must be strictly increasing"));
+        }
+        return franchiseRepository.stockHistogram(bounds, franchiseId);
+    }
+
+    @Override
+    public Mono<StockSnapshot> getBranchStockAt(String franchiseId, String branchId, Instant at) {
+        return stockJournal.map(journal -> journal.stockAt(franchiseId, branchId, at)
+                        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                "No stock history for this branch at that instant"))))
+                .orElseGet(() -> Mono.error(journalDisabled()));
+    }
+
+    @Override
+    public Flux<StockMovement> getStockMovements(String franchiseId, String branchId, String productId, Instant after, Instant until) {
+        return stockJournal.map(journal -> journal.movements(franchiseId, branchId, productId, after, until))
+                .orElseGet(() -> Flux.error(journalDisabled()));
+    }
+
+    // Cada cambio de stock queda en el journal antes de responder; sin journal no hace nada
+    private Mono<Void> journal(List<StockMovement> movements) {
+        return stockJournal.map(journal -> journal.append(movements)).orElseGet(Mono::empty);
+    }
+
+    // Con journal, las sucursales nuevas empiezan con un snapshot base vacío
+    private Mono<Void> branchesCreated(String franchiseId, List<Branch> branches) {
+        return stockJournal.map(journal -> journal.created(franchiseId, Optional.ofNullable(branches).orElseGet(List::of)))
+                .orElseGet(Mono::empty);
+    }
+
+    // Con journal, las escrituras del mismo producto y sus movimientos se registran en el mismo orden
+    private <T> Mono<T> journaled(String franchiseId, String branchId, String productId, Mono<T> write, StockMovement movement) {
+        return stockJournal.map(journal -> journal.record(StockJournal.key(franchiseId, branchId, productId), write, List.of(movement)))
+                .orElse(write);
+    }
+
+    private static ResponseStatusException journalDisabled() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock journal is disabled");
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockBulkOperations;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Un único sink multicast para todos los suscriptores: cada escritura emite una vez, sin importar cuántos
+ * clientes escuchen. Cada suscriptor tiene su propio buffer acotado; si se queda atrás pierde las alertas
+ * más antiguas en lugar de frenar a los demás.
+ * <p>
+ * Solo se alerta cuando un producto pasa de estar en el umbral o por encima a estar por debajo, así que hace
+ * falta el stock previo. Las escrituras de un producto lo obtienen con la misma escritura y solo si pueden cruzar
+ * el umbral (un valor final por debajo o un incremento negativo). Borrar un producto cuenta como bajar a 0. Los lotes leen antes el stock de esos productos:
+ * una escritura concurrente entre la lectura y el lote puede adelantar o perder una alerta.
+ */
+@Component
+public class LowStockAlerts {
+
+    private final Sinks.Many<LowStockAlert> sink = Sinks.many().multicast().directBestEffort();
+    private final FranchiseProperties franchiseProperties;
+
+    public LowStockAlerts(FranchiseProperties franchiseProperties) {
+        this.franchiseProperties = franchiseProperties;
+    }
+
+    // absolute: stock es el valor final; si no, el incremento
+    public boolean mayCross(int stock, boolean absolute) {
+        return absolute ? stock < threshold() : stock < 0;
+    }
+
+    public void stockChanged(String franchiseId, String branchId, Product before, int stock) {
+        int threshold = threshold();
+        if (before.getStock() >= threshold && stock < threshold) {
+            publish(new LowStockAlert(franchiseId, branchId, before.getId(), before.getName(), stock,
+                    threshold, LowStockAlert.Reason.STOCK_CHANGED));
+        }
+    }
+
+    // Borrar un producto deja su stock en 0: solo alerta si antes no estaba ya bajo el umbral
+    public void productRemoved(String franchiseId, String branchId, Product removed) {
+        int threshold = threshold();
+        if (threshold > 0 && removed.getStock() >= threshold) {
+            publish(new LowStockAlert(franchiseId, branchId, removed.getId(), removed.getName(), 0,
+                    threshold, LowStockAlert.Reason.PRODUCT_REMOVED));
+        }
+    }
+
+    /**
+     * Lee el stock previo de los productos del lote que pueden cruzar el umbral, agrupados por franquicia.
+     * Las claves son las de key(StockUpdate).
+     */
+    public Mono<Map<String, Product>> before(List<StockUpdate> changes, boolean absolute, StockBulkOperations operations) {
+        Map<String, List<StockUpdate>> byFranchise = changes.stream()
+                .filter(change -> mayCross(change.getStock(), absolute))
+                .collect(Collectors.groupingBy(change -> String.valueOf(change.getFranchiseId())));
+        if (byFranchise.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return Flux.fromIterable(byFranchise.entrySet())
+                .flatMap(entry -> operations.findProducts(entry.getKey(), entry.getValue())
+                        .map(products -> Map.entry(entry.getKey(), products)))
+                .<Map<String, Product>>collect(HashMap::new, (found, entry) -> entry.getValue()
+                        .forEach((productKey, product) -> found.put(entry.getKey() + "/" + productKey, product)));
+    }
+
+    // changes son los cambios del lote que se aplicaron
+    public void applied(Map<String, Product> before, Collection<StockUpdate> changes, boolean absolute) {
+        if (before.isEmpty()) {
+            return;
+        }
+        changes.forEach(change -> {
+            Product product = before.get(key(change));
+            if (product != null) {
+                stockChanged(change.getFranchiseId(), change.getBranchId(), product,
+                        absolute ? change.getStock() : product.getStock() + change.getStock());
+            }
+        });
+    }
+
+    public Flux<LowStockAlert> stream() {
+        return sink.asFlux()
+                .onBackpressureBuffer(franchiseProperties.getAlerts().getSubscriberBuffer(), dropped -> { },
+                        BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private int threshold() {
+        return franchiseProperties.getAlerts().getLowStockThreshold();
+    }
+
+    private static String key(StockUpdate change) {
+        return change.getFranchiseId() + "/" + StockUpdate.productKey(change.getBranchId(), change.getProductId());
+    }
+
+    // Solo se reintenta la contención entre hilos; sin suscriptores la alerta se descarta
+    private void publish(LowStockAlert alert) {
+        while (sink.tryEmitNext(alert) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+    }
+}
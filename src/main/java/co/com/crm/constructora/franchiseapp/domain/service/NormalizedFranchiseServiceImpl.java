@@ -0,0 +1,553 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.model.VersionMismatchException;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchDocument;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchDocumentRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.ProductDocument;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.ProductDocumentRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.ReadPreference;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Sucursales y productos viven en sus propias colecciones; cada operación sobre un producto toca un solo documento
+@Service
+@Qualifier("franchiseServiceTarget")
+@AllArgsConstructor
+@ConditionalOnProperty(name = "franchise.storage.layout", havingValue = "normalized")
+public class NormalizedFranchiseServiceImpl implements FranchiseService {
+
+    private final FranchiseRepository franchiseRepository;
+    private final BranchDocumentRepository branchDocumentRepository;
+    private final ProductDocumentRepository productDocumentRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final FranchiseProperties franchiseProperties;
+    private final BulkStockUpdater bulkStockUpdater;
+    private final LowStockAlerts lowStockAlerts;
+    // Presente con franchise.write-behind.enabled=true
+    private final Optional<StockWriteBehind> stockWriteBehind;
+    // Presente con franchise.journal.enabled=true
+    private final Optional<StockJournal> stockJournal;
+    // Presente con franchise.read-batching.enabled=true
+    private final Optional<FranchiseBatchLoader> franchiseBatchLoader;
+
+
+    @Override
+    public Mono<Franchise> createFranchise(Franchise franchise) {
+        List<Branch> branches = Optional.ofNullable(franchise.getBranches()).orElseGet(ArrayList::new);
+        franchise.setBranches(null);
+        return franchiseRepository.save(franchise)
+                .flatMap(saved -> saveBranches(saved.getId(), branches)
+                        .then(Mono.fromSupplier(() -> {
+                            saved.setBranches(branches);
+                            return saved;
+                        })));
+    }
+
+    @Override
+    public Mono<Franchise> getFranchiseById(String id) {
+        return findFranchise(id)
+                .flatMap(this::withBranches);
+    }
+
+    @Override
+    public Mono<Franchise> getFranchiseById(String id, FranchiseView view) {
+        return findFranchise(id)
+                .flatMap(franchise -> withView(franchise, view));
+    }
+
+    // Tres consultas $in para toda la lista: franquicias, sucursales y, con FULL, productos
+    @Override
+    public Flux<Franchise> getFranchisesByIds(List<String> ids, FranchiseView view) {
+        if (ids.size() > franchiseProperties.getPagination().getMaxPageSize()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many franchise ids"));
+        }
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        // Como el resto del layout normalizado, desde el primario
+        Flux<Franchise> franchises = franchiseRepository.findByIds(ids, FranchiseView.SUMMARY, ReadPreference.primary());
+        if (view == FranchiseView.SUMMARY) {
+            return franchises;
+        }
+        Mono<Map<String, Collection<Product>>> products = view == FranchiseView.FULL
+                ? productDocumentRepository.findByFranchiseIdInOrderByIdAsc(ids)
+                        .collectMultimap(product -> branchKey(product.getFranchiseId(), product.getBranchId()), ProductDocument::toProduct)
+                : Mono.just(Map.of());
+        return Mono.zip(franchises.collectList(),
+                        branchDocumentRepository.findByFranchiseIdInOrderByIdAsc(ids).collectMultimap(BranchDocument::getFranchiseId),
+                        products)
+                .flatMapIterable(loaded -> {
+                    loaded.getT1().forEach(franchise -> franchise.setBranches(loaded.getT2()
+                            .getOrDefault(franchise.getId(), List.of()).stream()
+                            .map(branch -> branch.toBranch(view == FranchiseView.FULL
+                                    ? new ArrayList<>(loaded.getT3().getOrDefault(
+                                            branchKey(branch.getFranchiseId(), branch.getBranchId()), List.of()))
+                                    : null))
+                            .collect(Collectors.toList())));
+                    return loaded.getT1();
+                });
+    }
+
+    @Override
+    public Mono<Long> getFranchiseVersion(String id) {
+        return franchiseRepository.findVersion(id);
+    }
+
+    @Override
+    public Flux<Franchise> getAllFranchises() {
+        return franchiseRepository.findAll()
+                .flatMapSequential(this::withBranches);
+    }
+
+    @Override
+    public Flux<Franchise> getFranchisesPage(String afterId, Integer limit, FranchiseView view) {
+        Flux<Franchise> page = franchiseRepository.findPage(afterId,
+                franchiseProperties.getPagination().pageSize(limit), FranchiseView.SUMMARY);
+        return view == FranchiseView.SUMMARY ? page : page.flatMapSequential(franchise -> withView(franchise, view));
+    }
+
+    @Override
+    public Mono<Void> deleteFranchise(String id) {
+        // Con journal, un REMOVE por producto: si no, la reconstrucción seguiría mostrando su stock
+        Mono<List<StockMovement>> removed = stockJournal.isPresent()
+                ? productDocumentRepository.findByFranchiseIdOrderByIdAsc(id)
+                        .map(product -> StockMovement.remove(id, product.getBranchId(), product.getProductId()))
+                        .collectList()
+                : Mono.just(List.of());
+        return removed.flatMap(movements -> productDocumentRepository.deleteByFranchiseId(id)
+                .then(branchDocumentRepository.deleteByFranchiseId(id))
+                .then(franchiseRepository.deleteById(id))
+                .then(journal(movements)));
+    }
+
+    @Override
+    public Mono<Branch> addBranch(String franchiseId, Branch branch) {
+        return versioned(franchiseId, null, franchiseRepository.existsById(franchiseId)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                .flatMap(exists -> saveBranches(franchiseId, List.of(branch)))
+                .onErrorMap(DuplicateKeyException.class, e -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Branch or product id already exists"))
+                .thenReturn(branch));
+    }
+
+    @Override
+    public Mono<Product> addProduct(String franchiseId, String branchId, Product product) {
+        return addProducts(franchiseId, branchId, List.of(product)).single();
+    }
+
+    // Todos los productos nuevos van en un solo insert
+    @Override
+    public Flux<Product> addProducts(String franchiseId, String branchId, List<Product> products) {
+        if (products.isEmpty()) {
+            return Flux.empty();
+        }
+        return versioned(franchiseId, null, branchDocumentRepository.existsByFranchiseIdAndBranchId(franchiseId, branchId)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(branchNotFound(franchiseId))
+                .flatMapMany(exists -> productDocumentRepository.saveAll(products.stream()
+                        .map(product -> {
+                            if (product.getId() == null) {
+                                product.setId(UUID.randomUUID().toString());
+                            }
+                            return ProductDocument.from(franchiseId, branchId, product);
+                        })
+                        .toList()))
+                .onErrorMap(DuplicateKeyException.class, e -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Product id already exists in this branch"))
+                .map(ProductDocument::toProduct)
+                .collectList()
+                .flatMap(saved -> journal(StockMovement.created(franchiseId, branchId, saved)).thenReturn(saved)))
+                .flatMapIterable(saved -> saved);
+    }
+
+    @Override
+    public Flux<Branch> getBranchesByFranchiseId(String franchiseId) {
+        return loadBranches(franchiseId);
+    }
+
+    @Override
+    public Mono<List<ProductWithBranch>> getMaxStockProductsByFranchise(String franchiseId) {
+        return franchiseRepository.existsById(franchiseId)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                .flatMap(exists -> maxStockProducts(franchiseId)
+                        .map(max -> new ProductWithBranch(max.getT1().getName(), max.getT2()))
+                        .collectList());
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> getMaxStockProducts() {
+        return franchiseRepository.findAll()
+                .concatMap(franchise -> maxStockProducts(franchise.getId())
+                        .map(max -> new ProductWithFranchise(franchise.getId(), franchise.getName(),
+                                max.getT1().getBranchId(), max.getT1().getName(), max.getT2())));
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> searchProducts(String query, ProductSearch.Match match, String franchiseId, Integer minStock, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return Flux.error(new Exception("Search query must not be blank"));
+        }
+        return productDocumentRepository.searchProducts(new ProductSearch(query, match, franchiseId, minStock,
+                        franchiseProperties.getPagination().pageSize(limit)))
+                .collectList()
+                .flatMapMany(this::withNames);
+    }
+
+    @Override
+    public Mono<Franchise> updateFranchiseName(String franchiseId, String newName, Long expectedVersion) {
+        return franchiseRepository.findById(franchiseId)
+                .flatMap(franchise -> expectedVersion == null || expectedVersion.equals(franchise.getVersion())
+                        ? Mono.just(franchise)
+                        : Mono.<Franchise>error(new VersionMismatchException()))
+                .flatMap(franchise -> {
+                    franchise.setName(newName);
+                    return franchiseRepository.save(franchise);
+                })
+                .switchIfEmpty(Mono.error(new Exception("Franchise not found")))
+                .transform(optimisticLockRetry::apply)
+                .flatMap(this::withBranches);
+    }
+
+    @Override
+    public Mono<Branch> updateBranchName(String franchiseId, String branchId, String newName, Long expectedVersion) {
+        return versioned(franchiseId, expectedVersion, branchDocumentRepository.findAndSetName(franchiseId, branchId, newName)
+                .flatMap(branch -> productDocumentRepository.findByFranchiseIdAndBranchIdOrderByIdAsc(franchiseId, branchId)
+                        .map(ProductDocument::toProduct)
+                        .collectList()
+                        .map(branch::toBranch))
+                .switchIfEmpty(branchNotFound(franchiseId)));
+    }
+
+    @Override
+    public Mono<Product> updateProductName(String franchiseId, String branchId, String productId, String newName, Long expectedVersion) {
+        return versioned(franchiseId, expectedVersion, productDocumentRepository.findAndSetName(franchiseId, branchId, productId, newName)
+                .map(ProductDocument::toProduct)
+                .switchIfEmpty(productNotFound(franchiseId, branchId)));
+    }
+
+    @Override
+    public Mono<Void> deleteProductFromBranch(String franchiseId, String branchId, String productId) {
+        return journaled(franchiseId, branchId, productId,
+                        versioned(franchiseId, null, productDocumentRepository.findAndRemove(franchiseId, branchId, productId)
+                                .map(ProductDocument::toProduct)
+                                .doOnNext(removed -> lowStockAlerts.productRemoved(franchiseId, branchId, removed))
+                                .switchIfEmpty(productNotFound(franchiseId, branchId))),
+                        StockMovement.remove(franchiseId, branchId, productId))
+                .then();
+    }
+
+    @Override
+    public Mono<Product> modifyProductStock(String franchiseId, String branchId, String productId, int newStock, Long expectedVersion) {
+        return journaled(franchiseId, branchId, productId,
+                        versioned(franchiseId, expectedVersion, productDocumentRepository.findAndSetStock(franchiseId, branchId, productId, newStock)
+                                .map(ProductDocument::toProduct)
+                                .doOnNext(before -> lowStockAlerts.stockChanged(franchiseId, branchId, before, newStock))
+                                .map(before -> new Product(before.getId(), before.getName(), newStock))
+                                .switchIfEmpty(productNotFound(franchiseId, branchId))),
+                        StockMovement.set(franchiseId, branchId, productId, newStock));
+    }
+
+    // Con write-behind los movimientos los registra el flush, solo los de los cambios que aplicó
+    @Override
+    public Mono<Void> setProductStock(String franchiseId, String branchId, String productId, int newStock) {
+        if (stockWriteBehind.isPresent()) {
+            return stockWriteBehind.get().set(franchiseId, branchId, productId, newStock);
+        }
+        return journaled(franchiseId, branchId, productId,
+                versioned(franchiseId, null, writeStock(franchiseId, branchId, productId, newStock, true)).then(),
+                StockMovement.set(franchiseId, branchId, productId, newStock));
+    }
+
+    @Override
+    public Mono<Void> adjustProductStock(String franchiseId, String branchId, String productId, int delta) {
+        if (stockWriteBehind.isPresent()) {
+            return stockWriteBehind.get().adjust(franchiseId, branchId, productId, delta);
+        }
+        return journaled(franchiseId, branchId, productId,
+                versioned(franchiseId, null, writeStock(franchiseId, branchId, productId, delta, false)).then(),
+                StockMovement.adjust(franchiseId, branchId, productId, delta));
+    }
+
+    // Solo las escrituras que pueden dejar el producto bajo el umbral leen el stock previo. Emite true si el
+    // producto existe, para que versioned incremente la versión
+    private Mono<Boolean> writeStock(String franchiseId, String branchId, String productId, int stock, boolean absolute) {
+        if (!lowStockAlerts.mayCross(stock, absolute)) {
+            return (absolute
+                    ? productDocumentRepository.setProductStock(franchiseId, branchId, productId, stock)
+                    : productDocumentRepository.incrementProductStock(franchiseId, branchId, productId, stock))
+                    .filter(Boolean::booleanValue)
+                    .switchIfEmpty(productNotFound(franchiseId, branchId));
+        }
+        return (absolute
+                ? productDocumentRepository.findAndSetStock(franchiseId, branchId, productId, stock)
+                : productDocumentRepository.findAndIncrementStock(franchiseId, branchId, productId, stock))
+                .map(ProductDocument::toProduct)
+                .doOnNext(before -> lowStockAlerts.stockChanged(franchiseId, branchId, before,
+                        absolute ? stock : before.getStock() + stock))
+                .map(before -> true)
+                .switchIfEmpty(productNotFound(franchiseId, branchId));
+    }
+
+    @Override
+    public Flux<StockUpdateResult> bulkUpdateStock(Flux<StockUpdate> updates) {
+        return bulkStockUpdater.apply(updates, productDocumentRepository, stockJournal);
+    }
+
+    @Override
+    public Flux<LowStockAlert> lowStockAlerts() {
+        return lowStockAlerts.stream();
+    }
+
+    // Las agregaciones corren sobre products_collection; nombres y franquicias o sucursales sin productos se completan aquí
+    @Override
+    public Flux<FranchiseStockTotal> getFranchiseStockTotals() {
+        return Mono.zip(productDocumentRepository.franchiseStockTotals().collectMap(FranchiseStockTotal::getFranchiseId),
+                        branchDocumentRepository.countByFranchiseId())
+                .flatMapMany(totals -> franchiseRepository.findAll()
+                        .map(franchise -> {
+                            FranchiseStockTotal total = totals.getT1().getOrDefault(franchise.getId(), new FranchiseStockTotal());
+                            total.setFranchiseId(franchise.getId());
+                            total.setFranchiseName(franchise.getName());
+                            total.setBranches(totals.getT2().getOrDefault(franchise.getId(), 0L));
+                            return total;
+                        }));
+    }
+
+    @Override
+    public Flux<BranchStockTotal> getBranchStockTotals(String franchiseId) {
+        Flux<Franchise> franchises = franchiseId == null
+                ? franchiseRepository.findAll()
+                : franchiseRepository.findAllById(List.of(franchiseId));
+        Flux<BranchDocument> branches = franchiseId == null
+                ? branchDocumentRepository.findAllByOrderByFranchiseIdAscIdAsc()
+                : branchDocumentRepository.findByFranchiseIdOrderByIdAsc(franchiseId);
+        return Mono.zip(productDocumentRepository.branchStockTotals(franchiseId)
+                                .collectMap(total -> branchKey(total.getFranchiseId(), total.getBranchId())),
+                        franchises.collectMap(Franchise::getId, Franchise::getName))
+                .flatMapMany(totals -> branches
+                        .map(branch -> {
+                            BranchStockTotal total = totals.getT1().getOrDefault(
+                                    branchKey(branch.getFranchiseId(), branch.getBranchId()), new BranchStockTotal());
+                            total.setFranchiseId(branch.getFranchiseId());
+                            total.setFranchiseName(totals.getT2().get(branch.getFranchiseId()));
+                            total.setBranchId(branch.getBranchId());
+                            total.setBranchName(branch.getName());
+                            return total;
+                        }));
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> getTopStockProducts(Integer limit) {
+        return productDocumentRepository.findTopStock(franchiseProperties.getPagination().pageSize(limit))
+                .collectList()
+                .flatMapMany(this::withNames);
+    }
+
+    @Override
+    public Flux<StockBucket> getStockHistogram(List<Integer> boundaries, String franchiseId) {
+        List<Integer> bounds = franchiseProperties.getAnalytics().boundaries(boundaries);
+        if (!StockBucket.validBoundaries(bounds)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Histogram boundaries must be strictly increasing"));
+        }
+        return productDocumentRepository.stockHistogram(bounds, franchiseId);
+    }
+
+    @Override
+    public Mono<StockSnapshot> getBranchStockAt(String franchiseId, String branchId, Instant at) {
+        return stockJournal.map(journal -> journal.stockAt(franchiseId, branchId, at)
+                        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                "No stock history for this branch at that instant"))))
+                .orElseGet(() -> Mono.error(journalDisabled()));
+    }
+
+    @Override
+    public Flux<StockMovement> getStockMovements(String franchiseId, String branchId, String productId, Instant after, Instant until) {
+        return stockJournal.map(journal -> journal.movements(franchiseId, branchId, productId, after, until))
+                .orElseGet(() -> Flux.error(journalDisabled()));
+    }
+
+    // Los nombres de franquicia y sucursal se resuelven en dos consultas para toda la lista de productos
+    private Flux<ProductWithFranchise> withNames(List<ProductDocument> products) {
+        if (products.isEmpty()) {
+            return Flux.empty();
+        }
+        Set<String> franchiseIds = products.stream().map(ProductDocument::getFranchiseId).collect(Collectors.toSet());
+        Set<String> branchIds = products.stream().map(ProductDocument::getBranchId).collect(Collectors.toSet());
+        Mono<Map<String, String>> franchiseNames = franchiseRepository.findAllById(franchiseIds)
+                .collectMap(Franchise::getId, Franchise::getName);
+        Mono<Map<String, String>> branchNames = branchDocumentRepository.findByFranchiseIdInAndBranchIdIn(franchiseIds, branchIds)
+                .collectMap(branch -> branchKey(branch.getFranchiseId(), branch.getBranchId()), BranchDocument::getName);
+        return Mono.zip(franchiseNames, branchNames)
+                .flatMapIterable(names -> products.stream()
+                        .map(product -> new ProductWithFranchise(product.getFranchiseId(),
+                                names.getT1().get(product.getFranchiseId()), product.getBranchId(),
+                                names.getT2().get(branchKey(product.getFranchiseId(), product.getBranchId())),
+                                product.toProduct()))
+                        .toList());
+    }
+
+    // Con BRANCHES no se consulta products_collection
+    private Mono<Franchise> withView(Franchise franchise, FranchiseView view) {
+        if (view == FranchiseView.FULL) {
+            return withBranches(franchise);
+        }
+        if (view == FranchiseView.SUMMARY) {
+            return Mono.just(franchise);
+        }
+        return branchDocumentRepository.findByFranchiseIdOrderByIdAsc(franchise.getId())
+                .map(branch -> branch.toBranch(null))
+                .collectList()
+                .map(branches -> {
+                    franchise.setBranches(branches);
+                    return franchise;
+                });
+    }
+
+    private Mono<Franchise> withBranches(Franchise franchise) {
+        return loadBranches(franchise.getId())
+                .collectList()
+                .map(branches -> {
+                    franchise.setBranches(branches);
+                    return franchise;
+                });
+    }
+
+    // La franquicia sin sucursales: el documento de franchises_collection, agrupado con otras lecturas si hay batcher
+    private Mono<Franchise> findFranchise(String id) {
+        return franchiseBatchLoader.map(loader -> loader.load(id, FranchiseView.SUMMARY))
+                .orElseGet(() -> franchiseRepository.findById(id));
+    }
+
+    private Flux<Branch> loadBranches(String franchiseId) {
+        return productDocumentRepository.findByFranchiseIdOrderByIdAsc(franchiseId)
+                .collectMultimap(ProductDocument::getBranchId, ProductDocument::toProduct)
+                .flatMapMany(products -> branchDocumentRepository.findByFranchiseIdOrderByIdAsc(franchiseId)
+                        .map(branch -> branch.toBranch(new ArrayList<>(
+                                products.getOrDefault(branch.getBranchId(), List.of())))));
+    }
+
+    private Mono<Void> saveBranches(String franchiseId, List<Branch> branches) {
+        List<BranchDocument> branchDocuments = new ArrayList<>();
+        List<ProductDocument> productDocuments = new ArrayList<>();
+        for (Branch branch : branches) {
+            if (branch.getId() == null) {
+                branch.setId(UUID.randomUUID().toString());
+            }
+            branchDocuments.add(BranchDocument.from(franchiseId, branch));
+            Optional.ofNullable(branch.getProducts()).orElseGet(List::of).forEach(product -> {
+                if (product.getId() == null) {
+                    product.setId(UUID.randomUUID().toString());
+                }
+                productDocuments.add(ProductDocument.from(franchiseId, branch.getId(), product));
+            });
+        }
+        return branchDocumentRepository.saveAll(branchDocuments)
+                .thenMany(productDocumentRepository.saveAll(productDocuments))
+                .then(Mono.defer(() -> branchesCreated(franchiseId, branches)));
+    }
+
+    // Cada cambio de stock queda en el journal antes de responder; sin journal no hace nada
+    private Mono<Void> journal(List<StockMovement> movements) {
+        return stockJournal.map(journal -> journal.append(movements)).orElseGet(Mono::empty);
+    }
+
+    // Con journal, las sucursales nuevas empiezan con un snapshot base vacío
+    private Mono<Void> branchesCreated(String franchiseId, List<Branch> branches) {
+        return stockJournal.map(journal -> journal.created(franchiseId, Optional.ofNullable(branches).orElseGet(List::of)))
+                .orElseGet(Mono::empty);
+    }
+
+    // Con journal, las escrituras del mismo producto y sus movimientos se registran en el mismo orden
+    private <T> Mono<T> journaled(String franchiseId, String branchId, String productId, Mono<T> write, StockMovement movement) {
+        return stockJournal.map(journal -> journal.record(StockJournal.key(franchiseId, branchId, productId), write, List.of(movement)))
+                .orElse(write);
+    }
+
+    private static ResponseStatusException journalDisabled() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Stock journal is disabled");
+    }
+
+    private Flux<Tuple2<BranchDocument, Product>> maxStockProducts(String franchiseId) {
+        return productDocumentRepository.findMaxStockByFranchise(franchiseId)
+                .collectMap(ProductDocument::getBranchId, ProductDocument::toProduct)
+                .flatMapMany(maxByBranch -> branchDocumentRepository.findByFranchiseIdOrderByIdAsc(franchiseId)
+                        .filter(branch -> maxByBranch.containsKey(branch.getBranchId()))
+                        .map(branch -> Tuples.of(branch, maxByBranch.get(branch.getBranchId()))));
+    }
+
+    // Las escrituras de sucursales y productos no tocan el documento de la franquicia, así que su versión se
+    // incrementa después de cada una y solo si termina bien: una lectura que vea la versión nueva ya ve también los
+    // datos nuevos. Con If-Match la versión esperada se comprueba en el primario antes de escribir; dos escrituras
+    // con el mismo If-Match que se crucen entre la comprobación y la escritura pueden aplicarse las dos.
+    private <T> Mono<T> versioned(String franchiseId, Long expectedVersion, Mono<T> write) {
+        Mono<T> bumped = write.flatMap(result -> franchiseRepository.incrementVersion(franchiseId, null).thenReturn(result));
+        if (expectedVersion == null) {
+            return bumped;
+        }
+        return franchiseRepository.hasVersion(franchiseId, expectedVersion)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.defer(() -> franchiseRepository.existsById(franchiseId)
+                        .flatMap(franchiseExists -> Mono.<Boolean>error(franchiseExists
+                                ? new VersionMismatchException()
+                                : new Exception("Franchise not found")))))
+                .then(bumped);
+    }
+
+    private <T> Mono<T> branchNotFound(String franchiseId) {
+        return Mono.defer(() -> franchiseRepository.existsById(franchiseId)
+                .flatMap(franchiseExists -> Mono.<T>error(new Exception(franchiseExists
+                        ? "Branch not found in this franchise"
+                        : "Franchise not found"))));
+    }
+
+    private <T> Mono<T> productNotFound(String franchiseId, String branchId) {
+        return Mono.defer(() -> branchDocumentRepository.existsByFranchiseIdAndBranchId(franchiseId, branchId)
+                .flatMap(branchExists -> branchExists
+                        ? Mono.<T>error(new Exception("Product not found in this branch"))
+                        : this.<T>branchNotFound(franchiseId)));
+    }
+
+    private static String branchKey(String franchiseId, String branchId) {
+        return franchiseId + "/" + branchId;
+    }
+}
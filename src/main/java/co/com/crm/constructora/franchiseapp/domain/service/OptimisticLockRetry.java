@@ -0,0 +1,51 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+@Component
+public class OptimisticLockRetry {
+
+    private final RetryBackoffSpec retrySpec;
+    private final Counter attempts;
+    private final Counter conflicts;
+    private final Counter exhausted;
+
+    public OptimisticLockRetry(MeterRegistry meterRegistry, FranchiseProperties franchiseProperties) {
+        FranchiseProperties.Retry settings = franchiseProperties.getRetry();
+        this.attempts = Counter.builder("franchise.write.attempts")
+                .description("Franchise write attempts, including retries")
+                .register(meterRegistry);
+        this.conflicts = Counter.builder("franchise.write.conflicts")
+                .description("Franchise writes rejected because of a concurrent version change")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("franchise.write.retries.exhausted")
+                .description("Franchise writes that kept conflicting after every retry")
+                .register(meterRegistry);
+        // backoff cuenta reintentos, no intentos: el primero no es un reintento
+        this.retrySpec = Retry.backoff(settings.getMaxAttempts() - 1, settings.getMinBackoff())
+                .maxBackoff(settings.getMaxBackoff())
+                .jitter(settings.getJitter())
+                .filter(OptimisticLockingFailureException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> {
+                    exhausted.increment();
+                    return signal.failure();
+                });
+    }
+
+    // Reintenta el flujo completo (lectura + guardado) cuando otro escritor cambió la versión
+    public <T> Mono<T> apply(Mono<T> write) {
+        return Mono.defer(() -> {
+                    attempts.increment();
+                    return write;
+                })
+                .doOnError(OptimisticLockingFailureException.class, e -> conflicts.increment())
+                .retryWhen(retrySpec);
+    }
+}
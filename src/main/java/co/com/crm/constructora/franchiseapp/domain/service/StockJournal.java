@@ -0,0 +1,396 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockMovementRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockSnapshotRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuples;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Journal append-only de los movimientos de stock, con snapshots periódicos por sucursal para consultar el
+ * stock en cualquier instante.
+ * <p>
+ * Orden: record() hace la escritura de stock y encola sus movimientos antes de dar paso a la siguiente escritura
+ * sobre los mismos productos, así el orden del journal (at y luego el id) es el orden en que Mongo las aplicó.
+ * El turno se toma por stripe de producto y solo dentro de esta instancia.
+ * <p>
+ * Commit en grupo: los movimientos encolados se escriben con un solo insertMany cuando hay maxBatch pendientes o
+ * cada flushInterval, así miles de movimientos por segundo cuestan unas pocas escrituras. Un lote fallido vuelve
+ * a la cola. Quien registra espera al commit como mucho appendTimeout; después sigue y el movimiento queda en la
+ * cola. Con maxPending movimientos en la cola los nuevos se descartan. Ambos casos se cuentan en métricas. Al
+ * cerrar el contexto se espera al lote en curso, se hace un último flush con shutdownTimeout y lo que quede
+ * termina en error.
+ * <p>
+ * Snapshots: cada snapshotInterval se guarda el stock de cada sucursal con movimientos hasta now - snapshotLag,
+ * calculado a partir del snapshot anterior y los movimientos posteriores. El retraso deja terminar los commits
+ * en curso y el ciclo se pospone si aún quedan movimientos más antiguos sin escribir. Solo caducan los snapshots
+ * reemplazados por uno posterior: el último de cada sucursal se conserva aunque no vuelva a tener movimientos.
+ * <p>
+ * Base: toda reconstrucción parte de un snapshot. Al arrancar, seed() guarda el stock actual de cada sucursal que
+ * aún no tiene ninguno y created() guarda uno vacío para las sucursales nuevas. Antes del primer snapshot de una
+ * sucursal su stock es desconocido y stockAt() no devuelve nada.
+ */
+@Slf4j
+public class StockJournal implements AutoCloseable {
+
+    private static final int ORDERING_STRIPES = 256;
+
+    private final StockMovementRepository movementRepository;
+    private final StockSnapshotRepository snapshotRepository;
+    private final FranchiseProperties.Journal config;
+    private final Clock clock;
+    private final Deque<Pending> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Sinks.Many<Boolean> sizeTrigger = Sinks.many().multicast().directBestEffort();
+    private final Counter appended;
+    private final Counter failedFlushes;
+    private final Counter snapshots;
+    private final Counter dropped;
+    private final Counter timeouts;
+    // Última escritura de cada stripe: la siguiente sobre esos productos espera a que termine
+    private final CompletableFuture<?>[] turns = new CompletableFuture<?>[ORDERING_STRIPES];
+    private final Sinks.One<Boolean> stop = Sinks.one();
+    private final CompletableFuture<Void> flushLoop;
+    private final Disposable snapshotLoop;
+    // Lote que se está escribiendo; ya no está en la cola pero aún no es visible
+    private volatile List<Pending> writing;
+    private volatile Instant lastSnapshot;
+
+    public StockJournal(StockMovementRepository movementRepository, StockSnapshotRepository snapshotRepository,
+                        FranchiseProperties franchiseProperties, MeterRegistry meterRegistry, Clock clock) {
+        this.movementRepository = movementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.config = franchiseProperties.getJournal();
+        this.clock = clock;
+        this.lastSnapshot = clock.instant().minus(config.getSnapshotInterval()).minus(config.getSnapshotLag());
+        this.appended = Counter.builder("franchise.stock.journal.appended")
+                .description("Stock movements written to the journal")
+                .register(meterRegistry);
+        this.failedFlushes = Counter.builder("franchise.stock.journal.flush.failures")
+                .description("Journal batches that failed and were returned to the queue")
+                .register(meterRegistry);
+        this.snapshots = Counter.builder("franchise.stock.journal.snapshots")
+                .description("Branch stock snapshots saved")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("franchise.stock.journal.dropped")
+                .description("Stock movements dropped because the queue was full or the journal was closed")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("franchise.stock.journal.append.timeouts")
+                .description("Appends that stopped waiting for the commit after append-timeout")
+                .register(meterRegistry);
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] = CompletableFuture.completedFuture(null);
+        }
+        Gauge.builder("franchise.stock.journal.pending", pending, AtomicInteger::get)
+                .description("Stock movements waiting to be written to the journal")
+                .register(meterRegistry);
+
+        // Al cerrar, stop corta los disparadores pero deja terminar el flush en curso
+        this.flushLoop = Flux.merge(Flux.interval(config.getFlushInterval()).map(tick -> true), sizeTrigger.asFlux())
+                .takeUntilOther(stop.asMono())
+                .onBackpressureDrop()
+                .concatMap(trigger -> flush(), 1)
+                .then()
+                .toFuture();
+        this.snapshotLoop = Flux.interval(config.getSnapshotInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> snapshot(clock.instant().minus(config.getSnapshotLag()))
+                        .onErrorResume(e -> {
+                            log.warn("Stock snapshot failed, retrying on the next cycle", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    /**
+     * Registra los movimientos con el instante actual; termina cuando están escritos o pasó appendTimeout.
+     * Para movimientos que no compiten con otras escrituras, como los productos recién creados.
+     */
+    public Mono<Void> append(List<StockMovement> movements) {
+        return Mono.defer(() -> await(enqueue(movements)));
+    }
+
+    /**
+     * Hace write en su turno para los productos de keys y registra los movimientos si termina bien, vacío o no.
+     */
+    public <T> Mono<T> record(String key, Mono<T> write, List<StockMovement> movements) {
+        return ordered(List.of(key), write, result -> movements);
+    }
+
+    // Sin valor de write no se registra nada
+    public <T> Mono<T> record(Collection<String> keys, Mono<T> write, Function<T, List<StockMovement>> movements) {
+        return ordered(keys, write, result -> result.map(movements).orElseGet(List::of));
+    }
+
+    public static String key(String franchiseId, String branchId, String productId) {
+        return franchiseId + "/" + StockUpdate.productKey(branchId, productId);
+    }
+
+    public static String key(StockUpdate update) {
+        return key(update.getFranchiseId(), update.getBranchId(), update.getProductId());
+    }
+
+    /**
+     * Sucursales nuevas: guarda su snapshot base vacío y registra el stock inicial de sus productos.
+     */
+    public Mono<Void> created(String franchiseId, List<Branch> branches) {
+        return Mono.defer(() -> {
+            Instant at = baseAt(clock.instant());
+            return Flux.fromIterable(branches)
+                    .filter(branch -> branch.getId() != null)
+                    .concatMap(branch -> save(StockSnapshot.of(franchiseId, branch.getId(), at, Map.of())))
+                    .then(append(StockMovement.created(franchiseId, branches)));
+        });
+    }
+
+    /**
+     * Guarda como base el stock actual de cada sucursal que aún no tiene snapshot, para que lo que existía antes
+     * de activar el journal no se reproduzca desde 0. Devuelve cuántas sucursales sembró.
+     * <p>
+     * Debe ejecutarse antes de atender escrituras: un incremento de otra instancia entre el instante de la base y
+     * la lectura de franchises se contaría dos veces.
+     */
+    public Mono<Long> seed(Flux<Franchise> franchises) {
+        return Mono.defer(() -> {
+            Instant at = baseAt(clock.instant());
+            return franchises
+                    .flatMapIterable(franchise -> Optional.ofNullable(franchise.getBranches()).orElseGet(List::of).stream()
+                            .filter(branch -> branch.getId() != null)
+                            .map(branch -> StockSnapshot.of(franchise.getId(), branch, at))
+                            .toList())
+                    .concatMap(base -> snapshotRepository.existsByFranchiseIdAndBranchId(base.getFranchiseId(), base.getBranchId())
+                            .filter(exists -> !exists)
+                            .flatMap(missing -> save(base)))
+                    .count()
+                    .doOnNext(snapshots::increment);
+        });
+    }
+
+    /**
+     * Escribe todo lo pendiente. Nunca termina en error: un lote que no se pudo escribir vuelve a la cola.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            List<Pending> batch = new ArrayList<>();
+            int size = 0;
+            Pending next;
+            while (size < config.getMaxBatch() && (next = queue.poll()) != null) {
+                batch.add(next);
+                size += next.movements().size();
+            }
+            if (batch.isEmpty()) {
+                return Mono.empty();
+            }
+            pending.addAndGet(-size);
+            return write(batch).flatMap(written -> written ? flush() : Mono.empty());
+        });
+    }
+
+    /**
+     * Stock de cada producto de la sucursal en el instante at (ahora si es null), reproduciendo los movimientos
+     * posteriores al snapshot más cercano. Vacío si no hay ningún snapshot hasta at: el stock es desconocido.
+     */
+    public Mono<StockSnapshot> stockAt(String franchiseId, String branchId, Instant at) {
+        return Mono.defer(() -> {
+            Instant upTo = at == null ? clock.instant() : at;
+            return snapshotRepository.findFirstByFranchiseIdAndBranchIdAndAtLessThanEqualOrderByAtDesc(franchiseId, branchId, upTo)
+                    .flatMap(base -> movementRepository.findMovements(franchiseId, branchId, null, base.getAt(), upTo)
+                            .reduce(base.stocks(), (stocks, movement) -> {
+                                movement.applyTo(stocks);
+                                return stocks;
+                            })
+                            .map(stocks -> StockSnapshot.of(franchiseId, branchId, upTo, stocks)));
+        });
+    }
+
+    // Movimientos con after < at <= until (ahora si es null)
+    public Flux<StockMovement> movements(String franchiseId, String branchId, String productId, Instant after, Instant until) {
+        return Flux.defer(() -> movementRepository.findMovements(franchiseId, branchId, productId,
+                after == null ? Instant.EPOCH : after, until == null ? clock.instant() : until));
+    }
+
+    /**
+     * Guarda un snapshot hasta upTo de cada sucursal con movimientos desde el ciclo anterior y con base (las que no
+     * tienen se omiten). Devuelve cuántos guardó; 0 sin consultar nada si todavía hay movimientos anteriores a upTo sin escribir.
+     */
+    public Mono<Long> snapshot(Instant upTo) {
+        return Mono.defer(() -> {
+            Pending oldest = queue.peekFirst();
+            List<Pending> batch = writing;
+            Instant inFlight = batch == null ? null : batch.get(0).at();
+            if ((oldest != null && !oldest.at().isAfter(upTo)) || (inFlight != null && !inFlight.isAfter(upTo))) {
+                log.info("Postponing stock snapshot: movements up to {} are not written yet", upTo);
+                return Mono.just(0L);
+            }
+            return movementRepository.findMovedBranches(lastSnapshot, upTo)
+                    .concatMap(branch -> stockAt(branch.getFranchiseId(), branch.getBranchId(), upTo))
+                    .concatMap(this::save)
+                    .count()
+                    .doOnNext(count -> {
+                        lastSnapshot = upTo;
+                        snapshots.increment(count);
+                    });
+        });
+    }
+
+    @Override
+    public void close() {
+        snapshotLoop.dispose();
+        stop.tryEmitValue(true);
+        try {
+            Mono.fromFuture(flushLoop)
+                    .then(flush())
+                    .block(config.getShutdownTimeout());
+        } finally {
+            // Lo que no se pudo escribir: quien lo registró recibe el error en vez de esperar para siempre
+            List<Pending> left = new ArrayList<>(Optional.ofNullable(writing).orElseGet(List::of));
+            Pending next;
+            while ((next = queue.poll()) != null) {
+                left.add(next);
+                pending.addAndGet(-next.movements().size());
+            }
+            for (Pending entry : left) {
+                if (entry.written().completeExceptionally(
+                        new IllegalStateException("Stock journal closed before the movements were written"))) {
+                    dropped.increment(entry.movements().size());
+                }
+            }
+        }
+    }
+
+    // El snapshot nuevo pasa a ser la base de la sucursal y los anteriores empiezan a caducar
+    private Mono<StockSnapshot> save(StockSnapshot snapshot) {
+        return snapshotRepository.save(snapshot)
+                .flatMap(saved -> snapshotRepository.supersede(saved.getFranchiseId(), saved.getBranchId(),
+                        saved.getAt(), clock.instant()).thenReturn(saved));
+    }
+
+    // Mongo guarda milisegundos y la reproducción toma los movimientos con at > base: un milisegundo antes, para
+    // que los movimientos registrados en el mismo milisegundo queden después de la base
+    private static Instant baseAt(Instant now) {
+        return now.truncatedTo(ChronoUnit.MILLIS).minusMillis(1);
+    }
+
+    private <T> Mono<T> ordered(Collection<String> keys, Mono<T> write, Function<Optional<T>, List<StockMovement>> movements) {
+        return Mono.defer(() -> {
+            CompletableFuture<Void> turn = new CompletableFuture<>();
+            CompletableFuture<?> previous = takeTurn(keys, turn);
+            return Mono.fromFuture(previous, true)
+                    .then(write.map(Optional::of).defaultIfEmpty(Optional.empty()))
+                    .map(result -> Tuples.of(result, enqueue(movements.apply(result))))
+                    // El turno se suelta con los movimientos ya en la cola, sin esperar al commit
+                    .doFinally(signal -> turn.complete(null))
+                    .flatMap(recorded -> await(recorded.getT2()).then(Mono.justOrEmpty(recorded.getT1())));
+        });
+    }
+
+    private CompletableFuture<?> takeTurn(Collection<String> keys, CompletableFuture<Void> turn) {
+        int[] stripes = keys.stream()
+                .mapToInt(key -> Math.floorMod(key.hashCode(), turns.length))
+                .distinct()
+                .toArray();
+        // Todas las stripes a la vez: dos escrituras sobre los mismos productos quedan en el mismo orden en cada una
+        synchronized (turns) {
+            CompletableFuture<?>[] previous = new CompletableFuture<?>[stripes.length];
+            for (int i = 0; i < stripes.length; i++) {
+                previous[i] = turns[stripes[i]];
+                turns[stripes[i]] = turn;
+            }
+            return CompletableFuture.allOf(previous);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (pending.get() + movements.size() > config.getMaxPending()) {
+            log.error("Stock journal queue is full ({} movements pending), dropping {} movements",
+                    pending.get(), movements.size());
+            dropped.increment(movements.size());
+            return CompletableFuture.completedFuture(null);
+        }
+        Instant at = clock.instant();
+        movements.forEach(movement -> {
+            movement.setAt(at);
+            // Id asignado aquí, en orden de llegada: desempata el mismo milisegundo y hace idempotente el reintento
+            movement.setId(new ObjectId().toHexString());
+        });
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        queue.add(new Pending(movements, at, written));
+        if (pending.addAndGet(movements.size()) >= config.getMaxBatch()) {
+            sizeTrigger.tryEmitNext(true);
+        }
+        return written;
+    }
+
+    // Con Mongo caído no se retiene la respuesta: el movimiento sigue en la cola y se escribirá al reintentar
+    private Mono<Void> await(CompletableFuture<Void> written) {
+        return Mono.fromFuture(written, true)
+                .timeout(config.getAppendTimeout())
+                .onErrorResume(TimeoutException.class, e -> {
+                    log.warn("Stock journal commit took longer than {}, not waiting for it", config.getAppendTimeout());
+                    timeouts.increment();
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Boolean> write(List<Pending> batch) {
+        List<StockMovement> movements = batch.stream().flatMap(entry -> entry.movements().stream()).toList();
+        return Mono.defer(() -> {
+                    writing = batch;
+                    return movementRepository.insertAll(movements);
+                })
+                .then(Mono.fromCallable(() -> {
+                    appended.increment(movements.size());
+                    batch.forEach(entry -> entry.written().complete(null));
+                    return true;
+                }))
+                .onErrorResume(e -> {
+                    log.warn("Journal flush of {} stock movements failed, returning them to the queue", movements.size(), e);
+                    failedFlushes.increment();
+                    requeue(batch);
+                    return Mono.just(false);
+                })
+                .doFinally(signal -> writing = null);
+    }
+
+    // Al frente de la cola y en su orden: son más antiguos que lo que haya llegado mientras tanto
+    private void requeue(List<Pending> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            queue.addFirst(batch.get(i));
+            pending.addAndGet(batch.get(i).movements().size());
+        }
+    }
+
+    record Pending(List<StockMovement> movements, Instant at, CompletableFuture<Void> written) {
+    }
+}
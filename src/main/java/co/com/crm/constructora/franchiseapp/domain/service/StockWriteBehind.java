@@ -0,0 +1,316 @@
+package co.com.crm.constructora.franchiseapp.domain.service;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockBulkOperations;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.BulkOperationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Buffer write-behind para setProductStock y adjustProductStock. Los cambios se acumulan por producto en
+ * stripes con su propio lock, se combinan (el último valor absoluto gana y los incrementos se suman) y se
+ * escriben con bulkWrite cuando hay maxBatch productos pendientes o cada flushInterval.
+ * <p>
+ * Durabilidad: una escritura aceptada vive solo en memoria hasta que un flush la escribe. Si el proceso muere
+ * sin apagarse ordenadamente se pierden los cambios pendientes (normalmente menos de un flushInterval). Al cerrar
+ * el contexto se espera al flush en curso y se hace uno último con shutdownTimeout. Los cambios sobre productos
+ * inexistentes se descartan al escribir.
+ * <p>
+ * Reintentos: los valores absolutos son idempotentes y vuelven al buffer si su escritura falla. Un incremento solo
+ * se reintenta si el bulkWrite lo reporta como fallido; si el error no dice qué se aplicó (timeout, conexión
+ * cortada) se descarta y se cuenta en franchise.stock.writebehind.deltas.dropped, porque repetirlo podría sumarlo
+ * dos veces.
+ * <p>
+ * Las alertas de stock bajo se emiten al escribir: antes de cada bulkWrite se lee el stock de los productos que
+ * pueden cruzar el umbral.
+ * <p>
+ * Journal: los movimientos se registran al escribir y no al aceptar, y solo los de los cambios que el bulkWrite
+ * aplicó. Son los cambios ya combinados, así que el journal ve un movimiento por producto y flush.
+ */
+@Slf4j
+public class StockWriteBehind implements AutoCloseable {
+
+    private final StockBulkOperations operations;
+    private final LowStockAlerts lowStockAlerts;
+    private final Optional<StockJournal> stockJournal;
+    private final FranchiseProperties.WriteBehind config;
+    private final Stripe[] stripes;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Sinks.Many<Boolean> sizeTrigger = Sinks.many().multicast().directBestEffort();
+    private final Counter accepted;
+    private final Counter written;
+    private final Counter failedFlushes;
+    private final Counter droppedDeltas;
+    private final Sinks.One<Boolean> stop = Sinks.one();
+    private final CompletableFuture<Void> flushLoop;
+    private final List<Consumer<Set<String>>> flushListeners = new CopyOnWriteArrayList<>();
+
+    public StockWriteBehind(StockBulkOperations operations, LowStockAlerts lowStockAlerts,
+                            FranchiseProperties franchiseProperties, MeterRegistry meterRegistry,
+                            Optional<StockJournal> stockJournal) {
+        this.operations = operations;
+        this.lowStockAlerts = lowStockAlerts;
+        this.stockJournal = stockJournal;
+        this.config = franchiseProperties.getWriteBehind();
+        this.stripes = new Stripe[config.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.accepted = Counter.builder("franchise.stock.writebehind.accepted")
+                .description("Stock changes accepted into the write-behind buffer")
+                .register(meterRegistry);
+        this.written = Counter.builder("franchise.stock.writebehind.written")
+                .description("Coalesced product writes flushed to MongoDB")
+                .register(meterRegistry);
+        this.failedFlushes = Counter.builder("franchise.stock.writebehind.flush.failures")
+                .description("Flushes that failed, entirely or in part")
+                .register(meterRegistry);
+        this.droppedDeltas = Counter.builder("franchise.stock.writebehind.deltas.dropped")
+                .description("Stock increments not retried because they may have been applied")
+                .register(meterRegistry);
+        Gauge.builder("franchise.stock.writebehind.pending", pending, AtomicInteger::get)
+                .description("Products with buffered stock changes")
+                .register(meterRegistry);
+
+        // Al cerrar, stop corta los disparadores pero deja terminar el flush en curso
+        this.flushLoop = Flux.merge(Flux.interval(config.getFlushInterval()).map(tick -> true), sizeTrigger.asFlux())
+                .takeUntilOther(stop.asMono())
+                .onBackpressureDrop()
+                .concatMap(trigger -> flush(), 1)
+                .then()
+                .toFuture();
+    }
+
+    // Recibe las franquicias de cada lote escrito, haya fallado o no: parte pudo aplicarse
+    public void onFlushed(Consumer<Set<String>> listener) {
+        flushListeners.add(listener);
+    }
+
+    public Mono<Void> set(String franchiseId, String branchId, String productId, int newStock) {
+        return Mono.fromRunnable(() -> enqueue(new StockUpdate(franchiseId, branchId, productId, newStock), true));
+    }
+
+    public Mono<Void> adjust(String franchiseId, String branchId, String productId, int delta) {
+        return Mono.fromRunnable(() -> enqueue(new StockUpdate(franchiseId, branchId, productId, delta), false));
+    }
+
+    /**
+     * Escribe todo lo pendiente. Nunca termina en error: lo que no se pudo escribir vuelve al buffer.
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            List<Pending> drained = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                drained.addAll(stripe.drain());
+            }
+            if (drained.isEmpty()) {
+                return Mono.empty();
+            }
+            pending.addAndGet(-drained.size());
+            return Flux.fromIterable(drained)
+                    .buffer(config.getMaxBatch())
+                    .concatMap(this::write)
+                    .then();
+        });
+    }
+
+    @Override
+    public void close() {
+        stop.tryEmitValue(true);
+        Mono.fromFuture(flushLoop)
+                .then(flush())
+                .block(config.getShutdownTimeout());
+    }
+
+    private void enqueue(StockUpdate update, boolean absolute) {
+        String key = key(update);
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        if (stripe.merge(key, new Pending(update, absolute))) {
+            if (pending.incrementAndGet() >= config.getMaxBatch()) {
+                sizeTrigger.tryEmitNext(true);
+            }
+        }
+        accepted.increment();
+    }
+
+    private Mono<Void> write(List<Pending> batch) {
+        List<Pending> sets = new ArrayList<>();
+        List<Pending> deltas = new ArrayList<>();
+        batch.forEach(change -> (change.absolute() ? sets : deltas).add(change));
+        Set<String> franchiseIds = batch.stream()
+                .map(change -> change.update().getFranchiseId())
+                .collect(Collectors.toSet());
+        return Mono.when(write(sets, true), write(deltas, false))
+                .doFinally(signal -> flushListeners.forEach(listener -> listener.accept(franchiseIds)));
+    }
+
+    private Mono<Void> write(List<Pending> changes, boolean absolute) {
+        if (changes.isEmpty()) {
+            return Mono.empty();
+        }
+        List<StockUpdate> updates = changes.stream().map(Pending::update).toList();
+        Mono<List<StockUpdate>> write = lowStockAlerts.before(updates, absolute, operations)
+                .onErrorReturn(Map.of())
+                .flatMap(before -> (absolute ? operations.bulkSetProductStock(updates) : operations.bulkIncrementProductStock(updates))
+                        .flatMap(matched -> {
+                            written.increment(changes.size());
+                            lowStockAlerts.applied(before, updates, absolute);
+                            return applied(updates, matched == updates.size());
+                        })
+                        // El bulkWrite es sin orden: solo los índices reportados no se aplicaron
+                        .onErrorResume(BulkOperationException.class, e -> {
+                            Set<Integer> failed = e.getErrors().stream()
+                                    .map(BulkWriteError::getIndex)
+                                    .collect(Collectors.toSet());
+                            log.warn("Write-behind flush failed for {} of {} products, returning them to the buffer",
+                                    failed.size(), changes.size(), e);
+                            failedFlushes.increment();
+                            written.increment(changes.size() - failed.size());
+                            List<StockUpdate> succeeded = IntStream.range(0, updates.size())
+                                    .filter(index -> !failed.contains(index))
+                                    .mapToObj(updates::get)
+                                    .toList();
+                            lowStockAlerts.applied(before, succeeded, absolute);
+                            failed.forEach(index -> requeue(changes.get(index)));
+                            return applied(succeeded, false);
+                        }))
+                .onErrorResume(e -> {
+                    failedFlushes.increment();
+                    if (absolute) {
+                        log.warn("Write-behind flush of {} products failed, returning them to the buffer", changes.size(), e);
+                        changes.forEach(this::requeue);
+                    } else {
+                        log.error("Write-behind flush of {} stock increments failed with an unknown outcome, "
+                                + "dropping them to avoid applying them twice", changes.size(), e);
+                        droppedDeltas.increment(changes.size());
+                    }
+                    return Mono.empty();
+                });
+        return journaled(updates, write, absolute).then();
+    }
+
+    // Con journal, el bulkWrite se hace en el turno de sus productos y registra un movimiento por cambio aplicado
+    private Mono<List<StockUpdate>> journaled(List<StockUpdate> updates, Mono<List<StockUpdate>> write, boolean absolute) {
+        return stockJournal.map(journal -> journal.record(updates.stream().map(StockJournal::key).toList(), write,
+                        applied -> applied.stream()
+                                .map(update -> absolute
+                                        ? StockMovement.set(update)
+                                        : StockMovement.adjust(update.getFranchiseId(), update.getBranchId(),
+                                                update.getProductId(), update.getStock()))
+                                .toList()))
+                .orElse(write);
+    }
+
+    // Los cambios sobre productos inexistentes no se aplican: si los totales no cuadran se consulta cuáles existen.
+    // Sin journal no hace falta saberlo. Si la consulta falla el lote ya está escrito y solo se pierden sus movimientos
+    private Mono<List<StockUpdate>> applied(List<StockUpdate> updates, boolean allMatched) {
+        if (stockJournal.isEmpty() || allMatched || updates.isEmpty()) {
+            return Mono.just(updates);
+        }
+        Map<String, List<StockUpdate>> byFranchise = updates.stream()
+                .collect(Collectors.groupingBy(update -> String.valueOf(update.getFranchiseId())));
+        return Flux.fromIterable(byFranchise.entrySet())
+                .concatMap(entry -> operations.findExistingProductKeys(entry.getKey(), entry.getValue())
+                        .flatMapIterable(existing -> entry.getValue().stream()
+                                .filter(update -> existing.contains(StockUpdate.productKey(update.getBranchId(), update.getProductId())))
+                                .toList()))
+                .collectList()
+                .onErrorResume(e -> {
+                    log.warn("Could not check which of {} flushed stock changes were applied, not journaling them",
+                            updates.size(), e);
+                    return Mono.just(List.of());
+                });
+    }
+
+    // Lo que se devuelve es más antiguo que lo que haya llegado mientras tanto
+    private void requeue(Pending failed) {
+        String key = key(failed.update());
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        if (stripe.mergeOlder(key, failed)) {
+            pending.incrementAndGet();
+        }
+    }
+
+    private static String key(StockUpdate update) {
+        return update.getFranchiseId() + "/" + StockUpdate.productKey(update.getBranchId(), update.getProductId());
+    }
+
+    /**
+     * Combina dos cambios del mismo producto en el orden en que llegaron.
+     */
+    static Pending combine(Pending older, Pending newer) {
+        if (newer.absolute()) {
+            return newer;
+        }
+        StockUpdate update = older.update();
+        return new Pending(new StockUpdate(update.getFranchiseId(), update.getBranchId(), update.getProductId(),
+                update.getStock() + newer.update().getStock()), older.absolute());
+    }
+
+    record Pending(StockUpdate update, boolean absolute) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<String, Pending> changes = new HashMap<>();
+
+        // true si el producto no tenía cambios pendientes
+        boolean merge(String key, Pending newer) {
+            lock.lock();
+            try {
+                Pending current = changes.get(key);
+                changes.put(key, current == null ? newer : combine(current, newer));
+                return current == null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean mergeOlder(String key, Pending older) {
+            lock.lock();
+            try {
+                Pending current = changes.get(key);
+                changes.put(key, current == null ? older : combine(older, current));
+                return current == null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Pending> drain() {
+            lock.lock();
+            try {
+                if (changes.isEmpty()) {
+                    return List.of();
+                }
+                List<Pending> drained = new ArrayList<>(changes.values());
+                changes = new HashMap<>();
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "branches_collection")
+@CompoundIndex(name = "franchise_branch_idx", def = "{'franchiseId': 1, 'branchId': 1}", unique = true)
+public class BranchDocument {
+    @Id
+    private String id;
+    private String franchiseId;
+    private String branchId;
+    private String name;
+
+    public static BranchDocument from(String franchiseId, Branch branch) {
+        return new BranchDocument(null, franchiseId, branch.getId(), branch.getName());
+    }
+
+    public Branch toBranch(List<Product> products) {
+        return new Branch(branchId, name, products);
+    }
+}
@@ -0,0 +1,16 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface BranchDocumentRepository extends ReactiveCrudRepository<BranchDocument, String>, BranchDocumentRepositoryCustom {
+    Flux<BranchDocument> findByFranchiseIdOrderByIdAsc(String franchiseId);
+    Flux<BranchDocument> findByFranchiseIdInOrderByIdAsc(Collection<String> franchiseIds);
+    Flux<BranchDocument> findAllByOrderByFranchiseIdAscIdAsc();
+    Flux<BranchDocument> findByFranchiseIdInAndBranchIdIn(Collection<String> franchiseIds, Collection<String> branchIds);
+    Mono<Boolean> existsByFranchiseIdAndBranchId(String franchiseId, String branchId);
+    Mono<Long> deleteByFranchiseId(String franchiseId);
+}
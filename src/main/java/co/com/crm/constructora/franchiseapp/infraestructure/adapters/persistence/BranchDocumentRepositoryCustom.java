@@ -0,0 +1,10 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+public interface BranchDocumentRepositoryCustom {
+    Mono<BranchDocument> findAndSetName(String franchiseId, String branchId, String newName);
+    Mono<Map<String, Long>> countByFranchiseId();
+}
@@ -0,0 +1,38 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import lombok.AllArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepositoryCustomImpl.stage;
+
+@AllArgsConstructor
+public class BranchDocumentRepositoryCustomImpl implements BranchDocumentRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<BranchDocument> findAndSetName(String franchiseId, String branchId, String newName) {
+        return mongoTemplate.findAndModify(branchQuery(franchiseId, branchId),
+                new Update().set("name", newName), FindAndModifyOptions.options().returnNew(true), BranchDocument.class);
+    }
+
+    @Override
+    public Mono<Map<String, Long>> countByFranchiseId() {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(BranchDocument.class,
+                        stage("{ $group: { _id: '$franchiseId', branches: { $sum: 1 } } }")), Document.class)
+                .collectMap(count -> count.getString("_id"), count -> count.get("branches", Number.class).longValue());
+    }
+
+    static Query branchQuery(String franchiseId, String branchId) {
+        return Query.query(Criteria.where("franchiseId").is(franchiseId).and("branchId").is(branchId));
+    }
+}
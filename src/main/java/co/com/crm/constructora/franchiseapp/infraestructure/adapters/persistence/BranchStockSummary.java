@@ -0,0 +1,71 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Vista materializada por sucursal que mantiene StockSummaryProjector a partir del change stream de franquicias
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "branch_stock_summaries")
+@CompoundIndex(name = "franchise_branch_index_idx", def = "{'franchiseId': 1, 'branchIndex': 1}", unique = true)
+public class BranchStockSummary {
+    // franchiseId/branchIndex: volver a proyectar una franquicia sobrescribe sus mismos documentos
+    @Id
+    private String id;
+    private String franchiseId;
+    private String franchiseName;
+    private int branchIndex;
+    private String branchId;
+    private String branchName;
+    // null si la sucursal no tiene productos
+    private Product maxStockProduct;
+    private long totalStock;
+    private int productCount;
+
+    /**
+     * Resume cada sucursal de la franquicia. Ante empates gana el primer producto, igual que la agregación.
+     */
+    public static List<BranchStockSummary> summarize(Franchise franchise) {
+        List<BranchStockSummary> summaries = new ArrayList<>();
+        if (franchise.getBranches() == null) {
+            return summaries;
+        }
+        for (int i = 0; i < franchise.getBranches().size(); i++) {
+            summaries.add(summarize(franchise, i));
+        }
+        return summaries;
+    }
+
+    public static BranchStockSummary summarize(Franchise franchise, int branchIndex) {
+        Branch branch = franchise.getBranches().get(branchIndex);
+        Product max = null;
+        long total = 0;
+        int count = 0;
+        if (branch.getProducts() != null) {
+            for (Product product : branch.getProducts()) {
+                if (max == null || product.getStock() > max.getStock()) {
+                    max = product;
+                }
+                total += product.getStock();
+                count++;
+            }
+        }
+        return new BranchStockSummary(id(franchise.getId(), branchIndex), franchise.getId(), franchise.getName(),
+                branchIndex, branch.getId(), branch.getName(), max, total, count);
+    }
+
+    public static String id(String franchiseId, int branchIndex) {
+        return franchiseId + "/" + branchIndex;
+    }
+}
@@ -0,0 +1,11 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface BranchStockSummaryRepository extends ReactiveCrudRepository<BranchStockSummary, String>, BranchStockSummaryRepositoryCustom {
+    Flux<BranchStockSummary> findByFranchiseIdOrderByBranchIndexAsc(String franchiseId);
+    Flux<BranchStockSummary> findAllByOrderByFranchiseIdAscBranchIndexAsc();
+    Mono<Long> deleteByFranchiseId(String franchiseId);
+}
@@ -0,0 +1,12 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+public interface BranchStockSummaryRepositoryCustom {
+    Mono<Void> replaceSummaries(String franchiseId, List<BranchStockSummary> summaries);
+    // Borra los resúmenes de las franquicias que no están en franchiseIds
+    Mono<Void> removeOtherFranchises(Set<String> franchiseIds);
+}
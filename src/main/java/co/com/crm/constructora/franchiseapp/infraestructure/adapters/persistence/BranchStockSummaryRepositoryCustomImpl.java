@@ -0,0 +1,37 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+@AllArgsConstructor
+public class BranchStockSummaryRepositoryCustomImpl implements BranchStockSummaryRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    // Sobrescribe los resúmenes por id y borra los de sucursales que ya no existen
+    @Override
+    public Mono<Void> replaceSummaries(String franchiseId, List<BranchStockSummary> summaries) {
+        return Flux.fromIterable(summaries)
+                .concatMap(mongoTemplate::save)
+                .then(mongoTemplate.remove(Query.query(Criteria.where("franchiseId").is(franchiseId)
+                        .and("branchIndex").gte(summaries.size())), BranchStockSummary.class))
+                .then();
+    }
+
+    // Recorre las franquicias distintas de la colección en lugar de enviar todos los ids en un $nin
+    @Override
+    public Mono<Void> removeOtherFranchises(Set<String> franchiseIds) {
+        return mongoTemplate.findDistinct(new Query(), "franchiseId", BranchStockSummary.class, String.class)
+                .filter(franchiseId -> !franchiseIds.contains(franchiseId))
+                .concatMap(franchiseId -> mongoTemplate.remove(Query.query(Criteria.where("franchiseId").is(franchiseId)),
+                        BranchStockSummary.class))
+                .then();
+    }
+}
@@ -4,6 +4,7 @@ import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Mono;
 
-public interface FranchiseRepository extends ReactiveCrudRepository<Franchise, String> {
+public interface FranchiseRepository extends ReactiveCrudRepository<Franchise, String>, FranchiseRepositoryCustom {
     Mono<Franchise> findByName(String name);
+    Mono<Boolean> existsByIdAndBranchesId(String id, String branchId);
 }
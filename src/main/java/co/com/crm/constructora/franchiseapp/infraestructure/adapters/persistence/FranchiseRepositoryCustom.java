@@ -0,0 +1,49 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import com.mongodb.ReadPreference;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface FranchiseRepositoryCustom extends StockBulkOperations {
+    Mono<Boolean> setProductStock(String franchiseId, String branchId, String productId, int newStock);
+    Mono<Boolean> incrementProductStock(String franchiseId, String branchId, String productId, int delta);
+    // Igual, pero devuelven el producto como estaba antes de la escritura; vacío si no existe
+    Mono<Product> findAndSetProductStock(String franchiseId, String branchId, String productId, int newStock);
+    Mono<Product> findAndIncrementProductStock(String franchiseId, String branchId, String productId, int delta);
+    Mono<Long> initializeMissingVersions();
+    // false si la franquicia no existe o ya tiene una sucursal con ese id
+    Mono<Boolean> pushBranch(String franchiseId, Branch branch);
+    // false si la franquicia o la sucursal no existen, o si la sucursal ya tiene alguno de esos ids
+    Mono<Boolean> pushProducts(String franchiseId, String branchId, List<Product> products);
+    Mono<Franchise> findById(String id, FranchiseView view);
+    // Una consulta $in; en el orden de ids, sin repetidos ni los que no existen
+    Flux<Franchise> findByIds(Collection<String> ids, FranchiseView view);
+    // Igual, con una preferencia de lectura explícita en vez de franchise.mongo.read-preference
+    Flux<Franchise> findByIds(Collection<String> ids, FranchiseView view, ReadPreference readPreference);
+    Mono<Long> findVersion(String id);
+    // Siempre del primario, para comprobar un If-Match antes de escribir
+    Mono<Boolean> hasVersion(String id, long version);
+    // Con expectedVersion solo incrementa si la versión actual coincide
+    Mono<Boolean> incrementVersion(String id, Long expectedVersion);
+    Flux<Franchise> findPage(String afterId, int limit, FranchiseView view);
+    Flux<ProductWithBranch> findMaxStockProductsByFranchise(String franchiseId);
+    Flux<ProductWithFranchise> findMaxStockProducts();
+    Flux<ProductWithFranchise> searchProducts(ProductSearch search);
+    Flux<FranchiseStockTotal> franchiseStockTotals();
+    Flux<BranchStockTotal> branchStockTotals(String franchiseId);
+    Flux<ProductWithFranchise> topStockProducts(int limit);
+    Flux<StockBucket> stockHistogram(List<Integer> boundaries, String franchiseId);
+}
@@ -0,0 +1,408 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class FranchiseRepositoryCustomImpl implements FranchiseRepositoryCustom {
+
+    static final String BRANCHES = "branches";
+    static final String VERSION = "version";
+    static final String PRODUCT_STOCK = "branches.$[b].products.$[p].stock";
+    static final AggregationOptions DISK_USE = AggregationOptions.builder().allowDiskUse(true).build();
+    // Reduce el array stocks de la etapa anterior a número de productos, agotados y stock total
+    static final AggregationOperation STOCK_TOTALS = stage("{ $set: { stocks: '$$REMOVE', products: { $size: '$stocks' },"
+            + " outOfStock: { $size: { $filter: { input: '$stocks', cond: { $lte: ['$$this', 0] } } } },"
+            + " totalStock: { $sum: '$stocks' } } }");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    // franchise.mongo.read-preference: solo en las lecturas que sirven los GET, nunca antes de una escritura
+    private final ReadPreference readPreference;
+    private final AggregationOptions readOptions;
+    private final AggregationOptions searchOptions;
+
+    public FranchiseRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate, FranchiseProperties franchiseProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.readPreference = franchiseProperties.getMongo().queryReadPreference();
+        this.readOptions = AggregationOptions.builder().allowDiskUse(true).readPreference(readPreference).build();
+        this.searchOptions = AggregationOptions.builder().collation(ProductSearchCriteria.NAME_COLLATION)
+                .readPreference(readPreference).build();
+    }
+
+    @Override
+    public Mono<Boolean> setProductStock(String franchiseId, String branchId, String productId, int newStock) {
+        return updateProduct(franchiseId, branchId, productId, new Update().set(PRODUCT_STOCK, newStock));
+    }
+
+    @Override
+    public Mono<Boolean> incrementProductStock(String franchiseId, String branchId, String productId, int delta) {
+        return updateProduct(franchiseId, branchId, productId, new Update().inc(PRODUCT_STOCK, delta));
+    }
+
+    @Override
+    public Mono<Product> findAndSetProductStock(String franchiseId, String branchId, String productId, int newStock) {
+        return findAndUpdateProduct(franchiseId, branchId, productId, new Update().set(PRODUCT_STOCK, newStock));
+    }
+
+    @Override
+    public Mono<Product> findAndIncrementProductStock(String franchiseId, String branchId, String productId, int delta) {
+        return findAndUpdateProduct(franchiseId, branchId, productId, new Update().inc(PRODUCT_STOCK, delta));
+    }
+
+    @Override
+    public Mono<Long> initializeMissingVersions() {
+        return mongoTemplate.updateMulti(Query.query(Criteria.where(VERSION).exists(false)),
+                        new Update().set(VERSION, 0L), Franchise.class)
+                .map(UpdateResult::getModifiedCount);
+    }
+
+    // $push envía solo los elementos nuevos: el documento no se lee ni se reescribe. El filtro descarta los ids
+    // que ya existen, así dos altas concurrentes con el mismo id no dejan una sucursal repetida
+    @Override
+    public Mono<Boolean> pushBranch(String franchiseId, Branch branch) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(franchiseId).and("branches._id").ne(branch.getId())),
+                        new Update().push(BRANCHES, branch).inc(VERSION, 1), Franchise.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<Boolean> pushProducts(String franchiseId, String branchId, List<Product> products) {
+        List<String> ids = products.stream().map(Product::getId).toList();
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(franchiseId)
+                                .and(BRANCHES).elemMatch(Criteria.where("_id").is(branchId).and("products._id").nin(ids))),
+                        new Update().push("branches.$.products").each(products.toArray()).inc(VERSION, 1), Franchise.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<Long> bulkSetProductStock(Collection<StockUpdate> updates) {
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Franchise.class);
+        updates.forEach(update -> bulk.updateOne(
+                productQuery(update.getFranchiseId(), update.getBranchId(), update.getProductId()),
+                productUpdate(new Update().set(PRODUCT_STOCK, update.getStock()), update.getBranchId(), update.getProductId())));
+        return bulk.execute()
+                .map(result -> (long) result.getMatchedCount());
+    }
+
+    @Override
+    public Mono<Long> bulkIncrementProductStock(Collection<StockUpdate> deltas) {
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Franchise.class);
+        deltas.forEach(delta -> bulk.updateOne(
+                productQuery(delta.getFranchiseId(), delta.getBranchId(), delta.getProductId()),
+                productUpdate(new Update().inc(PRODUCT_STOCK, delta.getStock()), delta.getBranchId(), delta.getProductId())));
+        return bulk.execute()
+                .map(result -> (long) result.getMatchedCount());
+    }
+
+    // Solo se proyectan los ids de sucursales y productos, no el documento completo
+    @Override
+    public Mono<Set<String>> findExistingProductKeys(String franchiseId, Collection<StockUpdate> updates) {
+        Query query = Query.query(Criteria.where("_id").is(franchiseId));
+        query.fields().include("branches._id").include("branches.products._id");
+        return mongoTemplate.findOne(query, Franchise.class)
+                .map(franchise -> {
+                    Set<String> keys = new HashSet<>();
+                    if (franchise.getBranches() != null) {
+                        franchise.getBranches().forEach(branch -> {
+                            if (branch.getProducts() != null) {
+                                branch.getProducts().forEach(product ->
+                                        keys.add(StockUpdate.productKey(branch.getId(), product.getId())));
+                            }
+                        });
+                    }
+                    return keys;
+                })
+                .defaultIfEmpty(Set.of());
+    }
+
+    @Override
+    public Mono<Map<String, Product>> findProducts(String franchiseId, Collection<StockUpdate> updates) {
+        Set<String> wanted = updates.stream()
+                .map(update -> StockUpdate.productKey(update.getBranchId(), update.getProductId()))
+                .collect(Collectors.toSet());
+        Query query = Query.query(Criteria.where("_id").is(franchiseId));
+        query.fields().include("branches._id").include("branches.products._id")
+                .include("branches.products.name").include("branches.products.stock");
+        return mongoTemplate.findOne(query, Franchise.class)
+                .map(franchise -> {
+                    Map<String, Product> products = new HashMap<>();
+                    if (franchise.getBranches() != null) {
+                        franchise.getBranches().forEach(branch -> {
+                            if (branch.getProducts() != null) {
+                                branch.getProducts().forEach(product -> {
+                                    String key = StockUpdate.productKey(branch.getId(), product.getId());
+                                    if (wanted.contains(key)) {
+                                        products.put(key, product);
+                                    }
+                                });
+                            }
+                        });
+                    }
+                    return products;
+                })
+                .defaultIfEmpty(Map.of());
+    }
+
+    // Solo se proyecta la versión: basta para responder un If-None-Match sin traer el documento
+    @Override
+    public Mono<Long> findVersion(String id) {
+        Query query = Query.query(Criteria.where("_id").is(id)).withReadPreference(readPreference);
+        query.fields().include(VERSION);
+        return mongoTemplate.findOne(query, Franchise.class)
+                .mapNotNull(Franchise::getVersion);
+    }
+
+    @Override
+    public Mono<Boolean> hasVersion(String id, long version) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(id).and(VERSION).is(version)), Franchise.class);
+    }
+
+    @Override
+    public Mono<Boolean> incrementVersion(String id, Long expectedVersion) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        if (expectedVersion != null) {
+            criteria = criteria.and(VERSION).is(expectedVersion);
+        }
+        return mongoTemplate.updateFirst(Query.query(criteria), new Update().inc(VERSION, 1), Franchise.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    // En el layout normalizado las escrituras de productos no tocan la franquicia: su versión se incrementa aparte
+    static Mono<Void> incrementVersions(ReactiveMongoTemplate mongoTemplate, Collection<String> franchiseIds) {
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(franchiseIds)),
+                        new Update().inc(VERSION, 1), Franchise.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Franchise> findById(String id, FranchiseView view) {
+        return mongoTemplate.findOne(project(Query.query(Criteria.where("_id").is(id)), view)
+                .withReadPreference(readPreference), Franchise.class);
+    }
+
+    @Override
+    public Flux<Franchise> findByIds(Collection<String> ids, FranchiseView view) {
+        return findByIds(ids, view, readPreference);
+    }
+
+    @Override
+    public Flux<Franchise> findByIds(Collection<String> ids, FranchiseView view, ReadPreference readPreference) {
+        List<String> distinct = ids.stream().distinct().toList();
+        return mongoTemplate.find(project(Query.query(Criteria.where("_id").in(distinct)), view)
+                        .withReadPreference(readPreference), Franchise.class)
+                .collectMap(Franchise::getId)
+                .flatMapIterable(found -> distinct.stream().map(found::get).filter(Objects::nonNull).toList());
+    }
+
+    @Override
+    public Flux<Franchise> findPage(String afterId, int limit, FranchiseView view) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit);
+        if (afterId != null) {
+            query.addCriteria(afterCursor(afterId));
+        }
+        return mongoTemplate.find(project(query, view).withReadPreference(readPreference), Franchise.class);
+    }
+
+    @Override
+    public Flux<ProductWithBranch> findMaxStockProductsByFranchise(String franchiseId) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class,
+                        Aggregation.match(Criteria.where("_id").is(franchiseId)),
+                        Aggregation.unwind(BRANCHES, "branchIndex"),
+                        Aggregation.unwind("branches.products", "productIndex"),
+                        stage("{ $sort: { 'branches.products.stock': -1, productIndex: 1 } }"),
+                        stage("{ $group: { _id: '$branchIndex', branchName: { $first: '$branches.name' },"
+                                + " product: { $first: '$branches.products' } } }"),
+                        stage("{ $sort: { _id: 1 } }"),
+                        stage("{ $project: { _id: 0, branchName: 1, product: 1 } }"))
+                .withOptions(readOptions), ProductWithBranch.class);
+    }
+
+    @Override
+    public Flux<ProductWithFranchise> findMaxStockProducts() {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class,
+                        Aggregation.unwind(BRANCHES, "branchIndex"),
+                        Aggregation.unwind("branches.products", "productIndex"),
+                        stage("{ $sort: { 'branches.products.stock': -1, productIndex: 1 } }"),
+                        stage("{ $group: { _id: { franchiseId: '$_id', branchIndex: '$branchIndex' },"
+                                + " franchiseName: { $first: '$name' }, branchId: { $first: '$branches._id' },"
+                                + " branchName: { $first: '$branches.name' }, product: { $first: '$branches.products' } } }"),
+                        stage("{ $sort: { '_id.franchiseId': 1, '_id.branchIndex': 1 } }"),
+                        stage("{ $project: { _id: 0, franchiseId: '$_id.franchiseId', franchiseName: 1,"
+                                + " branchId: 1, branchName: 1, product: 1 } }"))
+                .withOptions(readOptions), ProductWithFranchise.class);
+    }
+
+    // El primer $match usa el índice multikey de branches.products.name; el segundo descarta
+    // los productos del mismo documento que no coinciden
+    @Override
+    public Flux<ProductWithFranchise> searchProducts(ProductSearch search) {
+        Criteria candidates = ProductSearchCriteria.name("branches.products.name", search);
+        if (search.getFranchiseId() != null) {
+            candidates = new Criteria().andOperator(Criteria.where("_id").is(search.getFranchiseId()), candidates);
+        }
+        Criteria matches = ProductSearchCriteria.name("branches.products.name", search);
+        if (search.getMinStock() != null) {
+            matches = matches.and("branches.products.stock").gte(search.getMinStock());
+        }
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class,
+                        Aggregation.match(candidates),
+                        Aggregation.unwind(BRANCHES),
+                        Aggregation.unwind("branches.products"),
+                        Aggregation.match(matches),
+                        Aggregation.limit(search.getLimit()),
+                        stage("{ $project: { _id: 0, franchiseId: '$_id', franchiseName: '$name',"
+                                + " branchId: '$branches._id', branchName: '$branches.name', product: '$branches.products' } }"))
+                .withOptions(searchOptions), ProductWithFranchise.class);
+    }
+
+    // Los totales se calculan sobre los arrays de cada documento, sin $unwind, y salen en orden de _id
+    @Override
+    public Flux<FranchiseStockTotal> franchiseStockTotals() {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class,
+                        stage("{ $sort: { _id: 1 } }"),
+                        stage("{ $project: { _id: 0, franchiseId: '$_id', franchiseName: '$name',"
+                                + " branches: { $size: { $ifNull: ['$branches', []] } },"
+                                + " stocks: { $reduce: { input: { $ifNull: ['$branches.products.stock', []] },"
+                                + " initialValue: [], in: { $concatArrays: ['$$value', '$$this'] } } } } }"),
+                        STOCK_TOTALS)
+                .withOptions(readOptions), FranchiseStockTotal.class);
+    }
+
+    @Override
+    public Flux<BranchStockTotal> branchStockTotals(String franchiseId) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (franchiseId != null) {
+            stages.add(Aggregation.match(Criteria.where("_id").is(franchiseId)));
+        }
+        stages.add(stage("{ $sort: { _id: 1 } }"));
+        stages.add(Aggregation.unwind(BRANCHES));
+        stages.add(stage("{ $project: { _id: 0, franchiseId: '$_id', franchiseName: '$name',"
+                + " branchId: '$branches._id', branchName: '$branches.name',"
+                + " stocks: { $ifNull: ['$branches.products.stock', []] } } }"));
+        stages.add(STOCK_TOTALS);
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class, stages)
+                .withOptions(readOptions), BranchStockTotal.class);
+    }
+
+    // $sort seguido de $limit se resuelve en el servidor como un top-N sin ordenar todos los productos
+    @Override
+    public Flux<ProductWithFranchise> topStockProducts(int limit) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class,
+                        Aggregation.unwind(BRANCHES),
+                        Aggregation.unwind("branches.products"),
+                        stage("{ $sort: { 'branches.products.stock': -1, _id: 1 } }"),
+                        Aggregation.limit(limit),
+                        stage("{ $project: { _id: 0, franchiseId: '$_id', franchiseName: '$name',"
+                                + " branchId: '$branches._id', branchName: '$branches.name', product: '$branches.products' } }"))
+                .withOptions(readOptions), ProductWithFranchise.class);
+    }
+
+    @Override
+    public Flux<StockBucket> stockHistogram(List<Integer> boundaries, String franchiseId) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (franchiseId != null) {
+            stages.add(Aggregation.match(Criteria.where("_id").is(franchiseId)));
+        }
+        stages.add(stage("{ $project: { _id: 0, 'branches.products.stock': 1 } }"));
+        stages.add(Aggregation.unwind(BRANCHES));
+        stages.add(Aggregation.unwind("branches.products"));
+        stages.add(StockHistogram.bucket("branches.products.stock", boundaries));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Franchise.class, stages)
+                        .withOptions(readOptions), Document.class)
+                .map(bucket -> StockHistogram.toBucket(bucket, boundaries));
+    }
+
+    // El servidor solo envía los campos de la vista; lo excluido llega como null
+    static Query project(Query query, FranchiseView view) {
+        if (view == FranchiseView.SUMMARY) {
+            query.fields().exclude(BRANCHES);
+        } else if (view == FranchiseView.BRANCHES) {
+            query.fields().exclude("branches.products");
+        }
+        return query;
+    }
+
+    // Actualiza el producto en el servidor con filtros posicionales, sin traer el documento completo.
+    // Se incrementa la versión para que las escrituras optimistas concurrentes detecten el cambio.
+    // findAndModify devuelve por defecto el documento previo; solo se proyecta la sucursal del producto
+    private Mono<Product> findAndUpdateProduct(String franchiseId, String branchId, String productId, Update update) {
+        Query query = productQuery(franchiseId, branchId, productId);
+        query.fields().elemMatch(BRANCHES, Criteria.where("_id").is(branchId));
+        return mongoTemplate.findAndModify(query, productUpdate(update, branchId, productId), Franchise.class)
+                .mapNotNull(franchise -> franchise.getBranches() == null ? null : franchise.getBranches().stream()
+                        .filter(branch -> branch.getProducts() != null)
+                        .flatMap(branch -> branch.getProducts().stream())
+                        .filter(product -> productId.equals(product.getId()))
+                        .findFirst()
+                        .orElse(null));
+    }
+
+    private Mono<Boolean> updateProduct(String franchiseId, String branchId, String productId, Update update) {
+        return mongoTemplate.updateFirst(productQuery(franchiseId, branchId, productId),
+                        productUpdate(update, branchId, productId), Franchise.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    // Los ids generados por Mongo son ObjectId y los enviados por el cliente son texto; Mongo ordena
+    // todos los textos antes que los ObjectId, y $gt solo compara valores del mismo tipo
+    static Criteria afterCursor(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return Criteria.where("_id").gt(afterId);
+        }
+        return new Criteria().orOperator(
+                Criteria.where("_id").gt(afterId),
+                Criteria.where("_id").type(BsonType.OBJECT_ID.getValue()));
+    }
+
+    static Update productUpdate(Update update, String branchId, String productId) {
+        return update.inc(VERSION, 1)
+                .filterArray(Criteria.where("b._id").is(branchId))
+                .filterArray(Criteria.where("p._id").is(productId));
+    }
+
+    static Query productQuery(String franchiseId, String branchId, String productId) {
+        return Query.query(Criteria.where("_id").is(franchiseId)
+                .and(BRANCHES).elemMatch(Criteria.where("_id").is(branchId).and("products._id").is(productId)));
+    }
+
+    // Etapas escritas en JSON para que Spring no valide los campos calculados contra el modelo
+    static AggregationOperation stage(String json) {
+        return context -> Document.parse(json);
+    }
+}
@@ -0,0 +1,86 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties.StorageLayout;
+import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Copia las sucursales y productos embebidos en franchises_collection a sus propias colecciones
+@Component
+@AllArgsConstructor
+public class FranchiseStorageMigration {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final BranchDocumentRepository branchDocumentRepository;
+    private final ProductDocumentRepository productDocumentRepository;
+    private final FranchiseProperties franchiseProperties;
+
+    public Mono<Long> migrate() {
+        if (franchiseProperties.getStorage().getLayout() != StorageLayout.NORMALIZED) {
+            return Mono.error(new IllegalStateException(
+                    "The storage migration requires franchise.storage.layout=normalized"));
+        }
+        return mongoTemplate.find(Query.query(Criteria.where("branches").exists(true)), Franchise.class)
+                .concatMap(this::migrate)
+                .count();
+    }
+
+    private Mono<Franchise> migrate(Franchise franchise) {
+        String franchiseId = franchise.getId();
+        List<BranchDocument> branches = new ArrayList<>();
+        List<ProductDocument> products = new ArrayList<>();
+
+        for (Branch branch : franchise.getBranches() == null ? List.<Branch>of() : franchise.getBranches()) {
+            if (branch.getId() == null) {
+                branch.setId(UUID.randomUUID().toString());
+            }
+            branches.add(BranchDocument.from(franchiseId, branch));
+            if (branch.getProducts() != null) {
+                branch.getProducts().forEach(product -> {
+                    if (product.getId() == null) {
+                        product.setId(UUID.randomUUID().toString());
+                    }
+                    products.add(ProductDocument.from(franchiseId, branch.getId(), product));
+                });
+            }
+        }
+
+        // Se borra lo migrado antes para que la migración se pueda repetir si falla a mitad de camino
+        return branchDocumentRepository.deleteByFranchiseId(franchiseId)
+                .then(productDocumentRepository.deleteByFranchiseId(franchiseId))
+                .thenMany(insert(branches, BranchDocument.class))
+                .thenMany(insert(products, ProductDocument.class))
+                .then(verifyCopy(franchiseId, branches.size(), products.size()))
+                .then(mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(franchiseId)),
+                        new Update().unset("branches").inc("version", 1), Franchise.class))
+                .thenReturn(franchise);
+    }
+
+    // Las sucursales embebidas solo se borran si la copia normalizada está completa
+    private Mono<Void> verifyCopy(String franchiseId, long branches, long products) {
+        Query byFranchise = Query.query(Criteria.where("franchiseId").is(franchiseId));
+        return Mono.zip(mongoTemplate.count(byFranchise, BranchDocument.class),
+                        mongoTemplate.count(byFranchise, ProductDocument.class))
+                .flatMap(counts -> counts.getT1() == branches && counts.getT2() == products
+                        ? Mono.<Void>empty()
+                        : Mono.error(new IllegalStateException("Normalized copy of franchise " + franchiseId
+                                + " is incomplete: " + counts.getT1() + "/" + branches + " branches, "
+                                + counts.getT2() + "/" + products + " products")));
+    }
+
+    private <T> Flux<T> insert(List<T> documents, Class<T> type) {
+        return documents.isEmpty() ? Flux.empty() : mongoTemplate.insert(documents, type);
+    }
+}
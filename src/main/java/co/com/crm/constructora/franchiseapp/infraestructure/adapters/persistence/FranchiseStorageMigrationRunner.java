@@ -0,0 +1,48 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+// Corre antes de que arranque el servidor web (fase DEFAULT_PHASE - 2048): ninguna petición lee el layout
+// normalizado a medio migrar. Un fallo aborta el arranque
+@Slf4j
+@Component
+// Solo con el layout normalizado: con embedded la migración borraría las sucursales que la aplicación sigue leyendo
+@ConditionalOnExpression("'${franchise.storage.migrate-on-startup:false}' == 'true'"
+        + " and '${franchise.storage.layout:embedded}'.equalsIgnoreCase('normalized')")
+public class FranchiseStorageMigrationRunner implements SmartLifecycle {
+
+    // Antes que StockJournalSeeder, que siembra los snapshots leyendo el layout ya migrado
+    public static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final FranchiseStorageMigration franchiseStorageMigration;
+    private volatile boolean running;
+
+    public FranchiseStorageMigrationRunner(FranchiseStorageMigration franchiseStorageMigration) {
+        this.franchiseStorageMigration = franchiseStorageMigration;
+    }
+
+    @Override
+    public void start() {
+        Long migrated = franchiseStorageMigration.migrate().block();
+        log.info("Migrated {} franchises to the normalized storage layout", migrated);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,19 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Los documentos creados antes de @Version no tienen el campo; sin él, save() los trataría como nuevos
+@Component
+@AllArgsConstructor
+public class FranchiseVersionInitializer implements ApplicationRunner {
+
+    private final FranchiseRepository franchiseRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        franchiseRepository.initializeMissingVersions().block();
+    }
+}
@@ -0,0 +1,36 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "products_collection")
+@CompoundIndexes({
+        @CompoundIndex(name = "franchise_branch_product_idx", def = "{'franchiseId': 1, 'branchId': 1, 'productId': 1}", unique = true),
+        @CompoundIndex(name = "franchise_branch_stock_idx", def = "{'franchiseId': 1, 'branchId': 1, 'stock': -1}")
+})
+public class ProductDocument {
+    @Id
+    private String id;
+    private String franchiseId;
+    private String branchId;
+    private String productId;
+    private String name;
+    private int stock;
+
+    public static ProductDocument from(String franchiseId, String branchId, Product product) {
+        return new ProductDocument(null, franchiseId, branchId, product.getId(), product.getName(), product.getStock());
+    }
+
+    public Product toProduct() {
+        return new Product(productId, name, stock);
+    }
+}
@@ -0,0 +1,15 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ProductDocumentRepository extends ReactiveCrudRepository<ProductDocument, String>, ProductDocumentRepositoryCustom {
+    Flux<ProductDocument> findByFranchiseIdOrderByIdAsc(String franchiseId);
+    Flux<ProductDocument> findByFranchiseIdInOrderByIdAsc(Collection<String> franchiseIds);
+    Flux<ProductDocument> findByFranchiseIdAndBranchIdOrderByIdAsc(String franchiseId, String branchId);
+    Mono<Long> deleteByFranchiseIdAndBranchIdAndProductId(String franchiseId, String branchId, String productId);
+    Mono<Long> deleteByFranchiseId(String franchiseId);
+}
@@ -0,0 +1,26 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ProductDocumentRepositoryCustom extends StockBulkOperations {
+    Mono<ProductDocument> findAndSetName(String franchiseId, String branchId, String productId, String newName);
+    Mono<ProductDocument> findAndRemove(String franchiseId, String branchId, String productId);
+    // Devuelven el producto como estaba antes de la escritura
+    Mono<ProductDocument> findAndSetStock(String franchiseId, String branchId, String productId, int newStock);
+    Mono<ProductDocument> findAndIncrementStock(String franchiseId, String branchId, String productId, int delta);
+    Mono<Boolean> setProductStock(String franchiseId, String branchId, String productId, int newStock);
+    Mono<Boolean> incrementProductStock(String franchiseId, String branchId, String productId, int delta);
+    Flux<ProductDocument> findMaxStockByFranchise(String franchiseId);
+    Flux<ProductDocument> searchProducts(ProductSearch search);
+    Flux<FranchiseStockTotal> franchiseStockTotals();
+    Flux<BranchStockTotal> branchStockTotals(String franchiseId);
+    Flux<ProductDocument> findTopStock(int limit);
+    Flux<StockBucket> stockHistogram(List<Integer> boundaries, String franchiseId);
+}
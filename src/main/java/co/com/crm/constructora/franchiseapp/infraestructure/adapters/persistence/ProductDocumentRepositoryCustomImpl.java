@@ -0,0 +1,198 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import lombok.AllArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepositoryCustomImpl.incrementVersions;
+import static co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepositoryCustomImpl.stage;
+
+@AllArgsConstructor
+public class ProductDocumentRepositoryCustomImpl implements ProductDocumentRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<ProductDocument> findAndSetName(String franchiseId, String branchId, String productId, String newName) {
+        return mongoTemplate.findAndModify(productQuery(franchiseId, branchId, productId),
+                new Update().set("name", newName), FindAndModifyOptions.options().returnNew(true), ProductDocument.class);
+    }
+
+    @Override
+    public Mono<ProductDocument> findAndRemove(String franchiseId, String branchId, String productId) {
+        return mongoTemplate.findAndRemove(productQuery(franchiseId, branchId, productId), ProductDocument.class);
+    }
+
+    @Override
+    public Mono<ProductDocument> findAndSetStock(String franchiseId, String branchId, String productId, int newStock) {
+        return mongoTemplate.findAndModify(productQuery(franchiseId, branchId, productId),
+                new Update().set("stock", newStock), ProductDocument.class);
+    }
+
+    @Override
+    public Mono<ProductDocument> findAndIncrementStock(String franchiseId, String branchId, String productId, int delta) {
+        return mongoTemplate.findAndModify(productQuery(franchiseId, branchId, productId),
+                new Update().inc("stock", delta), ProductDocument.class);
+    }
+
+    @Override
+    public Mono<Boolean> setProductStock(String franchiseId, String branchId, String productId, int newStock) {
+        return mongoTemplate.updateFirst(productQuery(franchiseId, branchId, productId),
+                        new Update().set("stock", newStock), ProductDocument.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<Boolean> incrementProductStock(String franchiseId, String branchId, String productId, int delta) {
+        return mongoTemplate.updateFirst(productQuery(franchiseId, branchId, productId),
+                        new Update().inc("stock", delta), ProductDocument.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<Long> bulkSetProductStock(Collection<StockUpdate> updates) {
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, ProductDocument.class);
+        updates.forEach(update -> bulk.updateOne(
+                productQuery(update.getFranchiseId(), update.getBranchId(), update.getProductId()),
+                new Update().set("stock", update.getStock())));
+        return bulk.execute()
+                .flatMap(result -> incrementVersions(mongoTemplate, franchiseIds(updates))
+                        .thenReturn((long) result.getMatchedCount()));
+    }
+
+    @Override
+    public Mono<Long> bulkIncrementProductStock(Collection<StockUpdate> deltas) {
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, ProductDocument.class);
+        deltas.forEach(delta -> bulk.updateOne(
+                productQuery(delta.getFranchiseId(), delta.getBranchId(), delta.getProductId()),
+                new Update().inc("stock", delta.getStock())));
+        return bulk.execute()
+                .flatMap(result -> incrementVersions(mongoTemplate, franchiseIds(deltas))
+                        .thenReturn((long) result.getMatchedCount()));
+    }
+
+    @Override
+    public Mono<Set<String>> findExistingProductKeys(String franchiseId, Collection<StockUpdate> updates) {
+        Query query = Query.query(Criteria.where("franchiseId").is(franchiseId)
+                .and("productId").in(updates.stream().map(StockUpdate::getProductId).collect(Collectors.toSet())));
+        query.fields().include("branchId").include("productId");
+        return mongoTemplate.find(query, ProductDocument.class)
+                .map(product -> StockUpdate.productKey(product.getBranchId(), product.getProductId()))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Mono<Map<String, Product>> findProducts(String franchiseId, Collection<StockUpdate> updates) {
+        Query query = Query.query(Criteria.where("franchiseId").is(franchiseId)
+                .and("productId").in(updates.stream().map(StockUpdate::getProductId).collect(Collectors.toSet())));
+        query.fields().include("branchId").include("productId").include("name").include("stock");
+        Set<String> wanted = updates.stream()
+                .map(update -> StockUpdate.productKey(update.getBranchId(), update.getProductId()))
+                .collect(Collectors.toSet());
+        return mongoTemplate.find(query, ProductDocument.class)
+                .filter(product -> wanted.contains(StockUpdate.productKey(product.getBranchId(), product.getProductId())))
+                .collectMap(product -> StockUpdate.productKey(product.getBranchId(), product.getProductId()),
+                        ProductDocument::toProduct);
+    }
+
+    // Usa el índice franchise_branch_stock_idx: el primer producto de cada sucursal es el de mayor stock
+    @Override
+    public Flux<ProductDocument> findMaxStockByFranchise(String franchiseId) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(ProductDocument.class,
+                Aggregation.match(Criteria.where("franchiseId").is(franchiseId)),
+                stage("{ $sort: { franchiseId: 1, branchId: 1, stock: -1, _id: 1 } }"),
+                stage("{ $group: { _id: '$branchId', product: { $first: '$$ROOT' } } }"),
+                stage("{ $replaceRoot: { newRoot: '$product' } }")), ProductDocument.class);
+    }
+
+    // Usa product_name_idx o franchise_product_name_idx según venga o no la franquicia
+    @Override
+    public Flux<ProductDocument> searchProducts(ProductSearch search) {
+        Criteria criteria = ProductSearchCriteria.name("name", search);
+        if (search.getFranchiseId() != null) {
+            criteria = criteria.and("franchiseId").is(search.getFranchiseId());
+        }
+        if (search.getMinStock() != null) {
+            criteria = criteria.and("stock").gte(search.getMinStock());
+        }
+        return mongoTemplate.find(Query.query(criteria)
+                .collation(ProductSearchCriteria.NAME_COLLATION)
+                .limit(search.getLimit()), ProductDocument.class);
+    }
+
+    // Nombres de franquicia y sucursal y número de sucursales los completa el servicio
+    @Override
+    public Flux<FranchiseStockTotal> franchiseStockTotals() {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(ProductDocument.class,
+                        stage("{ $group: { _id: '$franchiseId', products: { $sum: 1 }, totalStock: { $sum: '$stock' },"
+                                + " outOfStock: { $sum: { $cond: [{ $lte: ['$stock', 0] }, 1, 0] } } } }"),
+                        stage("{ $project: { _id: 0, franchiseId: '$_id', products: 1, outOfStock: 1, totalStock: 1 } }"))
+                .withOptions(FranchiseRepositoryCustomImpl.DISK_USE), FranchiseStockTotal.class);
+    }
+
+    @Override
+    public Flux<BranchStockTotal> branchStockTotals(String franchiseId) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (franchiseId != null) {
+            stages.add(Aggregation.match(Criteria.where("franchiseId").is(franchiseId)));
+        }
+        stages.add(stage("{ $group: { _id: { franchiseId: '$franchiseId', branchId: '$branchId' }, products: { $sum: 1 },"
+                + " totalStock: { $sum: '$stock' }, outOfStock: { $sum: { $cond: [{ $lte: ['$stock', 0] }, 1, 0] } } } }"));
+        stages.add(stage("{ $project: { _id: 0, franchiseId: '$_id.franchiseId', branchId: '$_id.branchId',"
+                + " products: 1, outOfStock: 1, totalStock: 1 } }"));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(ProductDocument.class, stages)
+                .withOptions(FranchiseRepositoryCustomImpl.DISK_USE), BranchStockTotal.class);
+    }
+
+    @Override
+    public Flux<ProductDocument> findTopStock(int limit) {
+        return mongoTemplate.find(new Query()
+                .with(Sort.by(Sort.Order.desc("stock"), Sort.Order.asc("_id")))
+                .limit(limit), ProductDocument.class);
+    }
+
+    @Override
+    public Flux<StockBucket> stockHistogram(List<Integer> boundaries, String franchiseId) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (franchiseId != null) {
+            stages.add(Aggregation.match(Criteria.where("franchiseId").is(franchiseId)));
+        }
+        stages.add(StockHistogram.bucket("stock", boundaries));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(ProductDocument.class, stages), Document.class)
+                .map(bucket -> StockHistogram.toBucket(bucket, boundaries));
+    }
+
+    static Query productQuery(String franchiseId, String branchId, String productId) {
+        return Query.query(Criteria.where("franchiseId").is(franchiseId)
+                .and("branchId").is(branchId)
+                .and("productId").is(productId));
+    }
+
+    private static Set<String> franchiseIds(Collection<StockUpdate> updates) {
+        return updates.stream().map(StockUpdate::getFranchiseId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,24 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.regex.Pattern;
+
+final class ProductSearchCriteria {
+
+    // Nivel 2: ignora mayúsculas pero no acentos. Las consultas deben usar la misma collation que el índice
+    static final Collation NAME_COLLATION = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    private ProductSearchCriteria() {
+    }
+
+    static Criteria name(String path, ProductSearch search) {
+        if (search.getMatch() == ProductSearch.Match.CONTAINS) {
+            return Criteria.where(path).regex(Pattern.compile(Pattern.quote(search.getQuery()), Pattern.CASE_INSENSITIVE));
+        }
+        // Rango [query, query + U+FFFF): U+FFFF tiene el peso primario máximo en la collation
+        return Criteria.where(path).gte(search.getQuery()).lt(search.getQuery() + '\uffff');
+    }
+}
@@ -0,0 +1,45 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties.StorageLayout;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Índices de búsqueda por nombre con la collation de ProductSearchCriteria, según el layout activo
+@Component
+@AllArgsConstructor
+public class ProductSearchIndexInitializer implements ApplicationRunner {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final FranchiseProperties franchiseProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (franchiseProperties.getStorage().getLayout() == StorageLayout.NORMALIZED) {
+            Mono.when(
+                    mongoTemplate.indexOps(ProductDocument.class).ensureIndex(new Index()
+                            .on("name", Sort.Direction.ASC)
+                            .named("product_name_idx")
+                            .collation(ProductSearchCriteria.NAME_COLLATION)),
+                    mongoTemplate.indexOps(ProductDocument.class).ensureIndex(new Index()
+                            .on("franchiseId", Sort.Direction.ASC)
+                            .on("name", Sort.Direction.ASC)
+                            .named("franchise_product_name_idx")
+                            .collation(ProductSearchCriteria.NAME_COLLATION)))
+                    .block();
+        } else {
+            mongoTemplate.indexOps(Franchise.class).ensureIndex(new Index()
+                            .on("branches.products.name", Sort.Direction.ASC)
+                            .named("product_name_idx")
+                            .collation(ProductSearchCriteria.NAME_COLLATION))
+                    .block();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+public interface StockBulkOperations {
+    Mono<Long> bulkSetProductStock(Collection<StockUpdate> updates);
+    // Aquí StockUpdate.stock es el incremento, no el valor final
+    Mono<Long> bulkIncrementProductStock(Collection<StockUpdate> deltas);
+    Mono<Set<String>> findExistingProductKeys(String franchiseId, Collection<StockUpdate> updates);
+    // Id, nombre y stock de los productos que existen, por StockUpdate.productKey
+    Mono<Map<String, Product>> findProducts(String franchiseId, Collection<StockUpdate> updates);
+}
@@ -0,0 +1,38 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Etapa $bucket con un rango abierto a cada lado de los límites pedidos, así ningún stock queda fuera
+final class StockHistogram {
+
+    private StockHistogram() {
+    }
+
+    static AggregationOperation bucket(String stockField, List<Integer> boundaries) {
+        List<Long> bounds = bounds(boundaries);
+        return context -> new Document("$bucket", new Document("groupBy", "$" + stockField)
+                .append("boundaries", bounds)
+                .append("output", new Document("products", new Document("$sum", 1))));
+    }
+
+    static StockBucket toBucket(Document bucket, List<Integer> boundaries) {
+        List<Long> bounds = bounds(boundaries);
+        long from = bucket.get("_id", Number.class).longValue();
+        long to = bounds.get(bounds.indexOf(from) + 1);
+        return new StockBucket(from == Long.MIN_VALUE ? null : (int) from, to == Long.MAX_VALUE ? null : (int) to,
+                bucket.get("products", Number.class).longValue());
+    }
+
+    private static List<Long> bounds(List<Integer> boundaries) {
+        List<Long> bounds = new ArrayList<>(boundaries.size() + 2);
+        bounds.add(Long.MIN_VALUE);
+        boundaries.forEach(boundary -> bounds.add(boundary.longValue()));
+        bounds.add(Long.MAX_VALUE);
+        return bounds;
+    }
+}
@@ -0,0 +1,45 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Índices TTL del journal: MongoDB borra solo los movimientos más antiguos que retention y los snapshots que llevan
+// snapshotRetention reemplazados por uno posterior. El último snapshot de cada sucursal no tiene supersededAt y no
+// caduca: es la base de su reconstrucción aunque la sucursal lleve meses sin movimientos.
+// Cambiar la retención de un índice ya creado requiere borrarlo antes (o collMod), ensureIndex no lo modifica.
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(name = "franchise.journal.enabled", havingValue = "true")
+public class StockJournalIndexInitializer implements ApplicationRunner {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final FranchiseProperties franchiseProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        FranchiseProperties.Journal journal = franchiseProperties.getJournal();
+        Mono.when(
+                mongoTemplate.indexOps(StockMovement.class).ensureIndex(new Index()
+                        .on("at", Sort.Direction.ASC)
+                        .named("at_ttl_idx")
+                        .expire(journal.getRetention())),
+                // El índice TTL anterior caducaba por at, también el último snapshot de cada sucursal
+                mongoTemplate.indexOps(StockSnapshot.class).dropIndex("at_ttl_idx")
+                        .onErrorResume(e -> Mono.empty())
+                        .then(mongoTemplate.indexOps(StockSnapshot.class).ensureIndex(new Index()
+                                .on("supersededAt", Sort.Direction.ASC)
+                                .named("superseded_ttl_idx")
+                                .expire(journal.getSnapshotRetention()))))
+                .block();
+    }
+}
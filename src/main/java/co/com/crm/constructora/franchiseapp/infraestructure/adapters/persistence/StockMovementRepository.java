@@ -0,0 +1,7 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+public interface StockMovementRepository extends ReactiveCrudRepository<StockMovement, String>, StockMovementRepositoryCustom {
+}
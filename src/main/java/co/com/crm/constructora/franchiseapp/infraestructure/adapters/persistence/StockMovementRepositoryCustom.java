@@ -0,0 +1,17 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface StockMovementRepositoryCustom {
+    // Inserta un lote con ids ya asignados; reinsertar un movimiento ya escrito no es un error
+    Mono<Void> insertAll(List<StockMovement> movements);
+    // Movimientos con after < at <= upTo en el orden en que se registraron; productId es opcional
+    Flux<StockMovement> findMovements(String franchiseId, String branchId, String productId, Instant after, Instant upTo);
+    // Un elemento por sucursal con movimientos en el intervalo, solo con franchiseId y branchId
+    Flux<StockMovement> findMovedBranches(Instant after, Instant upTo);
+}
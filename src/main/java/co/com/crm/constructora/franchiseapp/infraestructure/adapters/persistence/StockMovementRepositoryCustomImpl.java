@@ -0,0 +1,60 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+import static co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepositoryCustomImpl.stage;
+
+@AllArgsConstructor
+public class StockMovementRepositoryCustomImpl implements StockMovementRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    // Sin orden: al reintentar un lote que se escribió a medias, los movimientos ya insertados fallan por
+    // clave duplicada sin detener al resto, y esos errores se ignoran
+    @Override
+    public Mono<Void> insertAll(List<StockMovement> movements) {
+        return mongoTemplate.bulkOps(BulkMode.UNORDERED, StockMovement.class)
+                .insert(movements)
+                .execute()
+                .then()
+                .onErrorResume(BulkOperationException.class, e -> e.getErrors().stream()
+                        .allMatch(error -> error.getCode() == DUPLICATE_KEY) ? Mono.empty() : Mono.error(e));
+    }
+
+    // Usa franchise_branch_at_idx; _id (ObjectId) desempata los movimientos del mismo milisegundo
+    @Override
+    public Flux<StockMovement> findMovements(String franchiseId, String branchId, String productId, Instant after, Instant upTo) {
+        Criteria criteria = Criteria.where("franchiseId").is(franchiseId)
+                .and("branchId").is(branchId)
+                .and("at").gt(after).lte(upTo);
+        if (productId != null) {
+            criteria = criteria.and("productId").is(productId);
+        }
+        return mongoTemplate.find(Query.query(criteria)
+                .with(Sort.by(Sort.Order.asc("at"), Sort.Order.asc("_id"))), StockMovement.class);
+    }
+
+    // Usa el índice TTL sobre at
+    @Override
+    public Flux<StockMovement> findMovedBranches(Instant after, Instant upTo) {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(StockMovement.class,
+                Aggregation.match(Criteria.where("at").gt(after).lte(upTo)),
+                stage("{ $group: { _id: { franchiseId: '$franchiseId', branchId: '$branchId' } } }"),
+                stage("{ $project: { _id: 0, franchiseId: '$_id.franchiseId', branchId: '$_id.branchId' } }")), StockMovement.class);
+    }
+}
@@ -0,0 +1,12 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface StockSnapshotRepository extends ReactiveCrudRepository<StockSnapshot, String>, StockSnapshotRepositoryCustom {
+    Mono<StockSnapshot> findFirstByFranchiseIdAndBranchIdAndAtLessThanEqualOrderByAtDesc(String franchiseId, String branchId, Instant at);
+    Mono<Boolean> existsByFranchiseIdAndBranchId(String franchiseId, String branchId);
+}
@@ -0,0 +1,10 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface StockSnapshotRepositoryCustom {
+    // Marca con supersededAt los snapshots de la sucursal anteriores a before que aún no lo tenían
+    Mono<Void> supersede(String franchiseId, String branchId, Instant before, Instant supersededAt);
+}
@@ -0,0 +1,28 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+public class StockSnapshotRepositoryCustomImpl implements StockSnapshotRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    // Usa franchise_branch_at_idx; los ya marcados conservan su fecha y caducan primero
+    @Override
+    public Mono<Void> supersede(String franchiseId, String branchId, Instant before, Instant supersededAt) {
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("franchiseId").is(franchiseId)
+                                .and("branchId").is(branchId)
+                                .and("at").lt(before)
+                                .and("supersededAt").exists(false)),
+                        new Update().set("supersededAt", supersededAt), StockSnapshot.class)
+                .then();
+    }
+}
@@ -0,0 +1,217 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Mantiene branch_stock_summaries a partir del change stream de franchises_collection (requiere replica set).
+ * Al arrancar reconstruye todos los resúmenes y después aplica los cambios desde un instante anterior a la
+ * reconstrucción. Un update solo vuelve a resumir las sucursales cuyos índices aparecen en su updateDescription;
+ * el resto de eventos proyecta la franquicia completa. Ambos parten del documento actual, así que repetir eventos
+ * es inocuo. Si el punto de reanudación ya no está en el oplog se reconstruye todo de nuevo.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${franchise.max-stock.strategy:aggregation}'.equalsIgnoreCase('materialized')"
+        + " and '${franchise.storage.layout:embedded}'.equalsIgnoreCase('embedded')")
+public class StockSummaryProjector implements ApplicationRunner, DisposableBean {
+
+    // Margen para el desfase de reloj entre la aplicación y el servidor
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(5);
+    // ChangeStreamFatalError y ChangeStreamHistoryLost: el change stream no puede reanudarse desde ahí
+    private static final Set<Integer> HISTORY_LOST = Set.of(280, 286);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final BranchStockSummaryRepository summaryRepository;
+    private final Timer lag;
+    private volatile BsonValue resumeToken;
+    private volatile boolean rebuilt;
+    private volatile Instant start;
+    private Disposable subscription;
+
+    public StockSummaryProjector(ReactiveMongoTemplate mongoTemplate, BranchStockSummaryRepository summaryRepository,
+                                 MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.summaryRepository = summaryRepository;
+        this.lag = Timer.builder("franchise.stock.summary.lag")
+                .description("Time between a franchise write and its projection into branch_stock_summaries")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        subscription = Mono.defer(() -> {
+                    if (rebuilt) {
+                        return Mono.<Void>empty();
+                    }
+                    start = Instant.now().minus(CLOCK_SKEW);
+                    return rebuild().doOnSuccess(ignored -> rebuilt = true);
+                })
+                .thenMany(Flux.defer(() -> mongoTemplate.changeStream(Franchise.class)
+                        .withOptions(options -> {
+                            options.fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+                            if (resumeToken != null) {
+                                options.resumeAfter(resumeToken);
+                            } else {
+                                options.resumeAt(start);
+                            }
+                        })
+                        .watchCollection(Franchise.class)
+                        .listen()))
+                .concatMap(event -> apply(event)
+                        .doOnSuccess(ignored -> resumeToken = event.getResumeToken()))
+                // Reintentar la misma reanudación fallaría siempre: se vuelve a reconstruir desde ahora
+                .doOnError(e -> {
+                    if (historyLost(e)) {
+                        log.warn("Stock summary change stream history was lost, rebuilding the summaries");
+                        resumeToken = null;
+                        rebuilt = false;
+                    }
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Stock summary projection failed, resuming", signal.failure())))
+                .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    // Al final borra los resúmenes de franquicias que ya no existen: su evento de borrado pudo perderse
+    public Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            Set<String> franchiseIds = new HashSet<>();
+            return mongoTemplate.findAll(Franchise.class)
+                    .concatMap(franchise -> {
+                        franchiseIds.add(franchise.getId());
+                        return project(OperationType.REPLACE, franchise.getId(), franchise);
+                    })
+                    .then(Mono.defer(() -> summaryRepository.removeOtherFranchises(franchiseIds)))
+                    .then(Mono.fromRunnable(() -> log.info("Stock summaries rebuilt")));
+        });
+    }
+
+    /**
+     * Aplica un cambio de franquicia sobre los resúmenes. Con UPDATE_LOOKUP el documento es el estado actual,
+     * o null si la franquicia se borró después del cambio (llegará su evento de borrado).
+     */
+    public Mono<Void> project(OperationType operationType, String franchiseId, Franchise franchise) {
+        return switch (operationType) {
+            case DELETE -> summaryRepository.deleteByFranchiseId(franchiseId).then();
+            case INSERT, UPDATE, REPLACE -> franchise == null
+                    ? Mono.empty()
+                    : summaryRepository.replaceSummaries(franchiseId, BranchStockSummary.summarize(franchise));
+            default -> Mono.empty();
+        };
+    }
+
+    /**
+     * Vuelve a resumir solo las sucursales de branchIndexes; un índice que ya no existe borra su resumen.
+     */
+    public Mono<Void> projectBranches(String franchiseId, Franchise franchise, Set<Integer> branchIndexes) {
+        int branches = franchise.getBranches() == null ? 0 : franchise.getBranches().size();
+        return Flux.fromIterable(branchIndexes)
+                .concatMap(index -> index < branches
+                        ? summaryRepository.save(BranchStockSummary.summarize(franchise, index)).then()
+                        : summaryRepository.deleteById(BranchStockSummary.id(franchiseId, index)))
+                .then();
+    }
+
+    /**
+     * Índices de las sucursales que tocó un update, o vacío si hay que resumir la franquicia completa: sin
+     * descripción, con arrays truncados, si se reescribió el array de sucursales ($pull o $set del array, que
+     * desplazan los índices) o si cambió el nombre de la franquicia, que va en todos sus resúmenes.
+     */
+    public static Optional<Set<Integer>> touchedBranches(UpdateDescription description) {
+        if (description == null
+                || (description.getTruncatedArrays() != null && !description.getTruncatedArrays().isEmpty())) {
+            return Optional.empty();
+        }
+        List<String> paths = new ArrayList<>();
+        if (description.getUpdatedFields() != null) {
+            paths.addAll(description.getUpdatedFields().keySet());
+        }
+        if (description.getRemovedFields() != null) {
+            paths.addAll(description.getRemovedFields());
+        }
+        Set<Integer> indexes = new TreeSet<>();
+        for (String path : paths) {
+            String[] parts = path.split("\\.", 3);
+            if (parts[0].equals("name")) {
+                return Optional.empty();
+            }
+            if (!parts[0].equals("branches")) {
+                continue;
+            }
+            if (parts.length == 1 || parts[1].isEmpty() || !parts[1].chars().allMatch(Character::isDigit)) {
+                return Optional.empty();
+            }
+            indexes.add(Integer.parseInt(parts[1]));
+        }
+        return Optional.of(indexes);
+    }
+
+    private Mono<Void> apply(ChangeStreamEvent<Franchise> event) {
+        BsonDocument documentKey = event.getRaw() == null ? null : event.getRaw().getDocumentKey();
+        if (documentKey == null || event.getOperationType() == null) {
+            return Mono.empty();
+        }
+        String franchiseId = documentId(documentKey.get("_id"));
+        Optional<Set<Integer>> touched = event.getOperationType() == OperationType.UPDATE && event.getBody() != null
+                ? touchedBranches(event.getRaw().getUpdateDescription())
+                : Optional.empty();
+        return touched.map(indexes -> projectBranches(franchiseId, event.getBody(), indexes))
+                .orElseGet(() -> project(event.getOperationType(), franchiseId, event.getBody()))
+                .doOnSuccess(ignored -> {
+                    if (event.getTimestamp() != null) {
+                        lag.record(Duration.between(event.getTimestamp(), Instant.now()));
+                    }
+                });
+    }
+
+    private static boolean historyLost(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && HISTORY_LOST.contains(mongoException.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String documentId(BsonValue id) {
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
@@ -2,22 +2,39 @@ package co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest;
 
 
 import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
 import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
 import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
 import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.model.VersionMismatchException;
 import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.BinaryCodecsConfig;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -40,26 +57,89 @@ public class FranchiseController {
         return franchiseService.createFranchise(franchise);
     }
 
-    @Operation(summary = "Get a franchise by its ID")
+    @Operation(summary = "Get a franchise by its ID; view=SUMMARY or BRANCHES returns only part of the tree")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Found the franchise",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Franchise.class)) }),
+                            schema = @Schema(implementation = Franchise.class)),
+                            @Content(mediaType = "application/cbor",
+                                    schema = @Schema(implementation = Franchise.class)),
+                            @Content(mediaType = BinaryCodecsConfig.APPLICATION_SMILE_VALUE,
+                                    schema = @Schema(implementation = Franchise.class)) }),
+            @ApiResponse(responseCode = "304", description = "If-None-Match matches the current ETag"),
             @ApiResponse(responseCode = "404", description = "Franchise not found") })
-    @GetMapping("/{id}")
-    public Mono<Franchise> getFranchiseById(@PathVariable String id) {
-        return franchiseService.getFranchiseById(id);
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<Franchise>> getFranchiseById(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "FULL") FranchiseView view,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Mono<ResponseEntity<Franchise>> load = Mono.defer(() -> view == FranchiseView.FULL
+                        ? franchiseService.getFranchiseById(id)
+                        : franchiseService.getFranchiseById(id, view))
+                .map(franchise -> ResponseEntity.ok().eTag(FranchiseETag.of(franchise.getVersion(), view)).body(franchise));
+        if (ifNoneMatch == null) {
+            return load;
+        }
+        // Primero solo la versión: si el ETag coincide, la franquicia no se carga ni se serializa
+        return franchiseService.getFranchiseVersion(id)
+                .flatMap(version -> {
+                    String eTag = FranchiseETag.of(version, view);
+                    return FranchiseETag.matches(ifNoneMatch, eTag)
+                            ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<Franchise>build())
+                            : load;
+                })
+                .switchIfEmpty(load);
     }
 
-    @Operation(summary = "Get all franchises")
-    @ApiResponse(responseCode = "200", description = "List of franchises",
+    @Operation(summary = "Get a page of franchises ordered by ID; pass the last ID received as 'after' to get the next page")
+    @ApiResponse(responseCode = "200", description = "Page of franchises",
+            content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Franchise.class)),
+                    @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = Franchise.class)),
+                    @Content(mediaType = "application/cbor",
+                            schema = @Schema(implementation = Franchise.class)),
+                    @Content(mediaType = BinaryCodecsConfig.APPLICATION_SMILE_VALUE,
+                            schema = @Schema(implementation = Franchise.class)) })
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public Flux<Franchise> getAllFranchises(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "FULL") FranchiseView view) {
+        return franchiseService.getFranchisesPage(after, limit, view);
+    }
+
+
+    // Con params = "ids" tiene prioridad sobre la paginación; GET /franchises/batch lo capturaría la ruta funcional de /{id}
+    @Operation(summary = "Get several franchises by ID with a single query; unknown IDs are skipped")
+    @ApiResponse(responseCode = "200", description = "Franchises in the order of the requested IDs",
             content = { @Content(mediaType = "application/json",
-                    schema = @Schema(implementation = Franchise.class)) })
-    @GetMapping
-    public Flux<Franchise> getAllFranchises() {
-        return franchiseService.getAllFranchises();
+                    schema = @Schema(implementation = Franchise.class)),
+                    @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = Franchise.class)) })
+    @GetMapping(params = "ids", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public Flux<Franchise> getFranchisesByIds(
+            @RequestParam List<String> ids,
+            @RequestParam(defaultValue = "FULL") FranchiseView view) {
+        return franchiseService.getFranchisesByIds(ids, view);
     }
 
+    @Operation(summary = "Get several franchises by ID with a single query, IDs as a JSON array in the body")
+    @ApiResponse(responseCode = "200", description = "Franchises in the order of the requested IDs",
+            content = { @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = Franchise.class)),
+                    @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = Franchise.class)) })
+    @PostMapping(value = "/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryCodecsConfig.APPLICATION_SMILE_VALUE})
+    public Flux<Franchise> getFranchisesByIdsFromBody(
+            @RequestBody List<String> ids,
+            @RequestParam(defaultValue = "FULL") FranchiseView view) {
+        return franchiseService.getFranchisesByIds(ids, view);
+    }
 
     @Operation(summary = "Delete a franchise by its ID")
     @ApiResponses(value = {
@@ -71,24 +151,59 @@ public class FranchiseController {
         return franchiseService.deleteFranchise(id);
     }
 
-    @Operation(summary = "Add a branch to a franchise")
+    @Operation(summary = "Add a branch to a franchise; returns the branch with its generated IDs")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Branch added to franchise",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Franchise.class)) }),
+                            schema = @Schema(implementation = Branch.class)) }),
             @ApiResponse(responseCode = "404", description = "Franchise not found") })
     @PostMapping("/{franchiseId}/branches")
-    public Mono<Franchise> addBranch(@PathVariable String franchiseId, @RequestBody Branch branch) {
+    public Mono<Branch> addBranch(@PathVariable String franchiseId, @RequestBody Branch branch) {
         return franchiseService.addBranch(franchiseId, branch);
     }
 
+    @Operation(summary = "Add a product to a branch; returns the product with its generated ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Product added to branch",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Product.class)) }),
+            @ApiResponse(responseCode = "404", description = "Franchise or branch not found") })
+    @PostMapping("/{franchiseId}/branches/{branchId}/products")
+    public Mono<Product> addProduct(@PathVariable String franchiseId, @PathVariable String branchId,
+                                    @RequestBody Product product) {
+        return franchiseService.addProduct(franchiseId, branchId, product);
+    }
+
+    @Operation(summary = "Add several products to a branch in a single write")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products added to branch",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Product.class)) }),
+            @ApiResponse(responseCode = "404", description = "Franchise or branch not found") })
+    @PostMapping("/{franchiseId}/branches/{branchId}/products/batch")
+    public Flux<Product> addProducts(@PathVariable String franchiseId, @PathVariable String branchId,
+                                     @RequestBody List<Product> products) {
+        return franchiseService.addProducts(franchiseId, branchId, products);
+    }
+
     @Operation(summary = "Get all branches of a franchise")
     @ApiResponse(responseCode = "200", description = "List of branches",
             content = { @Content(mediaType = "application/json",
                     schema = @Schema(implementation = Branch.class)) })
+    @ApiResponse(responseCode = "304", description = "If-None-Match matches the current ETag")
     @GetMapping("/{franchiseId}/branches")
-    public Flux<Branch> getBranchesByFranchiseId(@PathVariable String franchiseId) {
-        return franchiseService.getBranchesByFranchiseId(franchiseId);
+    public Mono<ResponseEntity<Flux<Branch>>> getBranchesByFranchiseId(
+            @PathVariable String franchiseId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // La versión se lee antes que las sucursales, así el ETag nunca es más reciente que los datos
+        return franchiseService.getFranchiseVersion(franchiseId)
+                .map(version -> {
+                    String eTag = FranchiseETag.of(version, FranchiseView.FULL);
+                    return FranchiseETag.matches(ifNoneMatch, eTag)
+                            ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<Flux<Branch>>build()
+                            : ResponseEntity.ok().eTag(eTag).body(franchiseService.getBranchesByFranchiseId(franchiseId));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> ResponseEntity.ok(franchiseService.getBranchesByFranchiseId(franchiseId))));
     }
     @GetMapping("/{franchiseId}/products/max-stock")
     @Operation(summary = "Get the product with the maximum stock for each branch of a franchise")
@@ -102,6 +217,106 @@ public class FranchiseController {
         return franchiseService.getMaxStockProductsByFranchise(franchiseId);
     }
 
+    @GetMapping("/products/max-stock")
+    @Operation(summary = "Get the product with the maximum stock for each branch of every franchise")
+    @ApiResponse(responseCode = "200", description = "List of products with maximum stock per branch",
+            content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ProductWithFranchise.class))})
+    public Flux<ProductWithFranchise> getMaxStockProducts() {
+        return franchiseService.getMaxStockProducts();
+    }
+
+    @GetMapping("/products/search")
+    @Operation(summary = "Search products by name (case-insensitive prefix or substring) across franchises and branches")
+    @ApiResponse(responseCode = "200", description = "Matching products with their franchise and branch",
+            content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ProductWithFranchise.class))})
+    public Flux<ProductWithFranchise> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "PREFIX") ProductSearch.Match match,
+            @RequestParam(required = false) String franchiseId,
+            @RequestParam(required = false) Integer minStock,
+            @RequestParam(required = false) Integer limit) {
+        return franchiseService.searchProducts(q, match, franchiseId, minStock, limit);
+    }
+
+    @GetMapping(value = "/analytics/stock-totals", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Total stock, product count and out-of-stock count per franchise")
+    @ApiResponse(responseCode = "200", description = "Stock totals per franchise",
+            content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = FranchiseStockTotal.class)),
+                    @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = FranchiseStockTotal.class))})
+    public Flux<FranchiseStockTotal> getFranchiseStockTotals() {
+        return franchiseService.getFranchiseStockTotals();
+    }
+
+    @GetMapping(value = "/analytics/branch-stock-totals", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Total stock, product count and out-of-stock count per branch, optionally for a single franchise")
+    @ApiResponse(responseCode = "200", description = "Stock totals per branch",
+            content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = BranchStockTotal.class)),
+                    @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = BranchStockTotal.class))})
+    public Flux<BranchStockTotal> getBranchStockTotals(@RequestParam(required = false) String franchiseId) {
+        return franchiseService.getBranchStockTotals(franchiseId);
+    }
+
+    @GetMapping(value = "/analytics/top-products", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Products with the highest stock across all franchises")
+    @ApiResponse(responseCode = "200", description = "Top products by stock with their franchise and branch",
+            content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ProductWithFranchise.class))})
+    public Flux<ProductWithFranchise> getTopStockProducts(@RequestParam(required = false) Integer limit) {
+        return franchiseService.getTopStockProducts(limit);
+    }
+
+    @GetMapping(value = "/analytics/stock-histogram", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Number of products per stock range; boundaries are increasing lower bounds, e.g. 0,1,10,100")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Non-empty stock ranges in ascending order",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockBucket.class))}),
+            @ApiResponse(responseCode = "400", description = "Boundaries are not strictly increasing")
+    })
+    public Flux<StockBucket> getStockHistogram(
+            @RequestParam(required = false) List<Integer> boundaries,
+            @RequestParam(required = false) String franchiseId) {
+        return franchiseService.getStockHistogram(boundaries, franchiseId);
+    }
+
+    @GetMapping("/{franchiseId}/branches/{branchId}/stock/history")
+    @Operation(summary = "Stock of every product of a branch at a point in time (ISO-8601, default now), "
+            + "replayed from the stock journal; requires franchise.journal.enabled=true")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Branch stock at the requested time",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockSnapshot.class))})
+    })
+    public Mono<StockSnapshot> getBranchStockAt(
+            @PathVariable String franchiseId,
+            @PathVariable String branchId,
+            @RequestParam(required = false) Instant at) {
+        return franchiseService.getBranchStockAt(franchiseId, branchId, at);
+    }
+
+    @GetMapping(value = "/{franchiseId}/branches/{branchId}/stock/movements", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Stock movements of a branch with after < at <= until, oldest first; "
+            + "requires franchise.journal.enabled=true")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stock movements in the order they were recorded",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockMovement.class))})
+    })
+    public Flux<StockMovement> getStockMovements(
+            @PathVariable String franchiseId,
+            @PathVariable String branchId,
+            @RequestParam(required = false) String productId,
+            @RequestParam(required = false) Instant after,
+            @RequestParam(required = false) Instant until) {
+        return franchiseService.getStockMovements(franchiseId, branchId, productId, after, until);
+    }
+
     @PutMapping("/{franchiseId}/name")
     @Operation(summary = "Update the name of a franchise")
     @ApiResponses(value = {
@@ -109,10 +324,13 @@ public class FranchiseController {
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = Franchise.class))}),
             @ApiResponse(responseCode = "404", description = "Franchise not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input")
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")
     })
-    public Mono<Franchise> updateFranchiseName(@PathVariable String franchiseId, @RequestParam String newName) {
-        return franchiseService.updateFranchiseName(franchiseId, newName);
+    public Mono<Franchise> updateFranchiseName(@PathVariable String franchiseId, @RequestParam String newName,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return preconditioned(franchiseService.updateFranchiseName(franchiseId, newName,
+                FranchiseETag.expectedVersion(ifMatch)));
     }
 
     @PutMapping("/{franchiseId}/branches/{branchId}/name")
@@ -122,10 +340,13 @@ public class FranchiseController {
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = Branch.class))}),
             @ApiResponse(responseCode = "404", description = "Franchise or branch not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input")
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")
     })
-    public Mono<Branch> updateBranchName(@PathVariable String franchiseId, @PathVariable String branchId, @RequestParam String newName) {
-        return franchiseService.updateBranchName(franchiseId, branchId, newName);
+    public Mono<Branch> updateBranchName(@PathVariable String franchiseId, @PathVariable String branchId, @RequestParam String newName,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return preconditioned(franchiseService.updateBranchName(franchiseId, branchId, newName,
+                FranchiseETag.expectedVersion(ifMatch)));
     }
 
     @PutMapping("/{franchiseId}/branches/{branchId}/products/{productId}/name")
@@ -135,14 +356,17 @@ public class FranchiseController {
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = Product.class))}),
             @ApiResponse(responseCode = "404", description = "Franchise, branch or product not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input")
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")
     })
     public Mono<Product> updateProductName(
             @PathVariable String franchiseId,
             @PathVariable String branchId,
             @PathVariable String productId,
-            @RequestParam String newName) {
-        return franchiseService.updateProductName(franchiseId, branchId, productId, newName);
+            @RequestParam String newName,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return preconditioned(franchiseService.updateProductName(franchiseId, branchId, productId, newName,
+                FranchiseETag.expectedVersion(ifMatch)));
     }
 
     @DeleteMapping("/{branchId}/products/{productId}")
@@ -163,14 +387,78 @@ public class FranchiseController {
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = Product.class))}),
             @ApiResponse(responseCode = "404", description = "Franchise, branch or product not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input")
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")
     })
     public Mono<Product> modifyProductStock(
+            @PathVariable String franchiseId,
+            @PathVariable String branchId,
+            @PathVariable String productId,
+            @RequestParam int newStock,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return preconditioned(franchiseService.modifyProductStock(franchiseId, branchId, productId, newStock,
+                FranchiseETag.expectedVersion(ifMatch)));
+    }
+
+    @PostMapping(value = "/stock/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Set the stock of many products at once from a JSON array or an NDJSON stream")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Result of every stock record, in input order",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockUpdateResult.class))}),
+            @ApiResponse(responseCode = "400", description = "Invalid input")
+    })
+    public Flux<StockUpdateResult> bulkUpdateStock(@RequestBody Flux<StockUpdate> updates) {
+        return franchiseService.bulkUpdateStock(updates);
+    }
+
+    @GetMapping(value = "/alerts/low-stock", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream an event whenever a stock change takes a product from the low-stock threshold or above to below it")
+    @ApiResponse(responseCode = "200", description = "Server-sent events with the affected product",
+            content = {@Content(mediaType = "text/event-stream",
+                    schema = @Schema(implementation = LowStockAlert.class))})
+    public Flux<LowStockAlert> lowStockAlerts(@RequestParam(required = false) String franchiseId) {
+        return franchiseService.lowStockAlerts()
+                .filter(alert -> franchiseId == null || franchiseId.equals(alert.getFranchiseId()));
+    }
+
+    @PatchMapping("/{franchiseId}/branches/{branchId}/products/{productId}/stock")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Set the stock of a product in place, without rewriting the franchise")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Product stock set"),
+            @ApiResponse(responseCode = "404", description = "Franchise, branch or product not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid input")
+    })
+    public Mono<Void> setProductStock(
             @PathVariable String franchiseId,
             @PathVariable String branchId,
             @PathVariable String productId,
             @RequestParam int newStock) {
-        return franchiseService.modifyProductStock(franchiseId, branchId, productId, newStock);
+        return franchiseService.setProductStock(franchiseId, branchId, productId, newStock);
+    }
+
+    @PatchMapping("/{franchiseId}/branches/{branchId}/products/{productId}/stock/adjust")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Adjust the stock of a product by a relative delta")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Product stock adjusted"),
+            @ApiResponse(responseCode = "404", description = "Franchise, branch or product not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid input")
+    })
+    public Mono<Void> adjustProductStock(
+            @PathVariable String franchiseId,
+            @PathVariable String branchId,
+            @PathVariable String productId,
+            @RequestParam int delta) {
+        return franchiseService.adjustProductStock(franchiseId, branchId, productId, delta);
+    }
+
+    private static <T> Mono<T> preconditioned(Mono<T> write) {
+        return write.onErrorMap(VersionMismatchException.class,
+                e -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage()));
     }
 
 
@@ -0,0 +1,54 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest;
+
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+
+// ETag fuerte de una franquicia: su versión, que cambia con cada escritura, más la vista servida, p. ej. "7-full"
+public final class FranchiseETag {
+
+    private FranchiseETag() {
+    }
+
+    public static String of(Long version, FranchiseView view) {
+        return version == null ? null : "\"" + version + "-" + view.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    // If-None-Match admite una lista de ETags, "*" y la comparación débil (se ignora el prefijo W/)
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = strip(candidate);
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Versión esperada de un If-Match; null si no hay header o es "*". Cualquier vista identifica la misma versión
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = strip(ifMatch.split(",")[0]);
+        int dash = tag.indexOf('-');
+        try {
+            if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"") || dash < 0) {
+                throw new NumberFormatException(tag);
+            }
+            return Long.parseLong(tag.substring(1, dash));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Invalid If-Match header");
+        }
+    }
+
+    private static String strip(String tag) {
+        String trimmed = tag.trim();
+        return trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed;
+    }
+}
@@ -0,0 +1,106 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(name = "franchise.web.functional-reads", havingValue = "true")
+public class FranchiseReadHandler {
+
+    private final FranchiseService franchiseService;
+    private final ObjectMapper objectMapper;
+
+    public Mono<ServerResponse> getFranchiseById(ServerRequest request) {
+        String id = request.pathVariable("id");
+        FranchiseView view;
+        try {
+            view = request.queryParam("view").map(FranchiseView::valueOf).orElse(FranchiseView.FULL);
+        } catch (IllegalArgumentException e) {
+            // Igual que la conversión del @RequestParam en FranchiseController
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid view", e));
+        }
+        Mono<ServerResponse> load = Mono.defer(() -> view == FranchiseView.FULL
+                        ? franchiseService.getFranchiseById(id)
+                        : franchiseService.getFranchiseById(id, view))
+                .flatMap(franchise -> json(franchise, FranchiseETag.of(franchise.getVersion(), view)))
+                // Un Mono<ResponseEntity> vacío en FranchiseController responde 200 sin cuerpo
+                .switchIfEmpty(ServerResponse.ok().build());
+        String ifNoneMatch = ifNoneMatch(request);
+        if (ifNoneMatch == null) {
+            return load;
+        }
+        // Igual que en FranchiseController: si el ETag coincide, la franquicia no se carga ni se serializa
+        return franchiseService.getFranchiseVersion(id)
+                .flatMap(version -> {
+                    String eTag = FranchiseETag.of(version, view);
+                    return FranchiseETag.matches(ifNoneMatch, eTag)
+                            ? ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build()
+                            : load;
+                })
+                .switchIfEmpty(load);
+    }
+
+    public Mono<ServerResponse> getBranchesByFranchiseId(ServerRequest request) {
+        String franchiseId = request.pathVariable("franchiseId");
+        String ifNoneMatch = ifNoneMatch(request);
+        // La versión se lee antes que las sucursales, así el ETag nunca es más reciente que los datos
+        return franchiseService.getFranchiseVersion(franchiseId)
+                .map(version -> FranchiseETag.of(version, FranchiseView.FULL))
+                .flatMap(eTag -> FranchiseETag.matches(ifNoneMatch, eTag)
+                        ? ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build()
+                        : branches(franchiseId, eTag))
+                .switchIfEmpty(Mono.defer(() -> branches(franchiseId, null)));
+    }
+
+    public Mono<ServerResponse> getMaxStockProductsByFranchise(ServerRequest request) {
+        return franchiseService.getMaxStockProductsByFranchise(request.pathVariable("franchiseId"))
+                .flatMap(products -> json(products, null));
+    }
+
+    private static String ifNoneMatch(ServerRequest request) {
+        List<String> values = request.headers().header(HttpHeaders.IF_NONE_MATCH);
+        return values.isEmpty() ? null : String.join(",", values);
+    }
+
+    private Mono<ServerResponse> branches(String franchiseId, String eTag) {
+        return franchiseService.getBranchesByFranchiseId(franchiseId)
+                .collectList()
+                .flatMap(branches -> json(branches, eTag));
+    }
+
+    // Serializa de una vez a un byte[] y lo envuelve en un único buffer, sin negociar codecs ni copiar
+    private Mono<ServerResponse> json(Object body, String eTag) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        ServerResponse.BodyBuilder response = ServerResponse.ok();
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(bytes.length)
+                .body(BodyInserters.fromDataBuffers(Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes))));
+    }
+}
@@ -0,0 +1,32 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+
+/**
+ * Rutas funcionales para las lecturas más frecuentes. WebFlux evalúa las RouterFunction antes que los
+ * controladores anotados, así que con franchise.web.functional-reads=true estas rutas reemplazan a las
+ * de FranchiseController y el resto de endpoints sigue igual. Solo atienden JSON: las peticiones que piden
+ * CBOR o Smile siguen llegando al controlador.
+ */
+@Configuration
+@ConditionalOnProperty(name = "franchise.web.functional-reads", havingValue = "true")
+public class FranchiseRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> franchiseReadRoutes(FranchiseReadHandler handler) {
+        return RouterFunctions.route()
+                .GET("/franchises/{id}", accept(MediaType.APPLICATION_JSON), handler::getFranchiseById)
+                .GET("/franchises/{franchiseId}/branches", accept(MediaType.APPLICATION_JSON), handler::getBranchesByFranchiseId)
+                .GET("/franchises/{franchiseId}/products/max-stock", accept(MediaType.APPLICATION_JSON),
+                        handler::getMaxStockProductsByFranchise)
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest;
+
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decide qué fracción de las peticiones a /franchises rechazar a partir del p99 (ventana de sheddingWindow) y
+ * de la cola de espera del pool de MongoDB (mongodb.driver.pool.waitqueuesize). La fracción crece con lo que
+ * cada valor supera su umbral: 0 en el umbral y todas al doble. El p99 solo cuenta con al menos
+ * sheddingMinSamples peticiones en la ventana, así con poco tráfico una petición lenta no corta el servicio.
+ * Se evalúa cada evaluationInterval para no calcular percentiles en cada petición.
+ */
+@Component
+@ConditionalOnProperty(name = "franchise.rate-limit.enabled", havingValue = "true")
+public class LoadShedder implements ApplicationRunner, DisposableBean {
+
+    private final MeterRegistry meterRegistry;
+    private final FranchiseProperties.RateLimit rateLimit;
+    private final Timer latency;
+    private final LongAdder recorded = new LongAdder();
+    // Peticiones registradas en cada evaluación de la ventana, en anillo
+    private final long[] samples;
+    private int slot;
+    private volatile double shedProbability;
+    private Disposable evaluation;
+
+    public LoadShedder(MeterRegistry meterRegistry, FranchiseProperties franchiseProperties) {
+        this.meterRegistry = meterRegistry;
+        this.rateLimit = franchiseProperties.getRateLimit();
+        this.latency = Timer.builder("franchise.web.latency")
+                .description("Latency of /franchises requests as seen by the load shedder")
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(rateLimit.getSheddingWindow())
+                .distributionStatisticBufferLength(2)
+                .register(meterRegistry);
+        this.samples = new long[(int) Math.max(1,
+                rateLimit.getSheddingWindow().toMillis() / rateLimit.getEvaluationInterval().toMillis())];
+        Gauge.builder("franchise.web.shed.probability", this, shedder -> shedder.shedProbability)
+                .description("Fraction of /franchises requests being shed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        evaluation = Flux.interval(rateLimit.getEvaluationInterval())
+                .subscribe(tick -> evaluate());
+    }
+
+    @Override
+    public void destroy() {
+        if (evaluation != null) {
+            evaluation.dispose();
+        }
+    }
+
+    public void record(long nanos) {
+        latency.record(nanos, TimeUnit.NANOSECONDS);
+        recorded.increment();
+    }
+
+    public boolean overloaded() {
+        return shedProbability > 0;
+    }
+
+    // Cada petición se rechaza de forma independiente con la probabilidad actual
+    public boolean shouldShed() {
+        double probability = shedProbability;
+        return probability > 0 && ThreadLocalRandom.current().nextDouble() < probability;
+    }
+
+    public synchronized void evaluate() {
+        samples[slot] = recorded.sumThenReset();
+        slot = (slot + 1) % samples.length;
+        long inWindow = Arrays.stream(samples).sum();
+        double p99 = Arrays.stream(latency.takeSnapshot().percentileValues())
+                .filter(value -> value.percentile() == 0.99)
+                .mapToDouble(value -> value.value(TimeUnit.MILLISECONDS))
+                .findFirst()
+                .orElse(0);
+        double waitQueue = meterRegistry.find("mongodb.driver.pool.waitqueuesize").gauges().stream()
+                .mapToDouble(Gauge::value)
+                .sum();
+        double latencyExcess = inWindow >= rateLimit.getSheddingMinSamples()
+                ? excess(p99, rateLimit.getSheddingP99Latency().toMillis())
+                : 0;
+        shedProbability = Math.max(latencyExcess, excess(waitQueue, rateLimit.getSheddingWaitQueueSize()));
+    }
+
+    // 0 hasta el umbral, 1 desde el doble
+    private static double excess(double value, double threshold) {
+        if (threshold <= 0) {
+            return value > 0 ? 1 : 0;
+        }
+        return Math.min(1, Math.max(0, (value - threshold) / threshold));
+    }
+}
@@ -0,0 +1,163 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest;
+
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Protege /franchises antes de llegar al controlador: 503 para la fracción de peticiones que indique LoadShedder,
+ * 429 cuando se agota el token bucket del cliente o de la franquicia y 503 cuando un endpoint costoso ya tiene
+ * expensiveConcurrency peticiones en curso. Todas las respuestas de rechazo llevan Retry-After.
+ * <p>
+ * El cliente es el usuario autenticado o, sin autenticación, la dirección remota. Ninguna cabecera enviada por
+ * el cliente cuenta: con una nueva en cada petición cualquiera tendría buckets ilimitados.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "franchise.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter implements WebFilter {
+
+    private static final PathPattern FRANCHISE_PATH = PathPatternParser.defaultInstance.parse("/franchises/{franchiseId}/**");
+    private static final PathPattern ALERTS_PATH = PathPatternParser.defaultInstance.parse("/franchises/alerts/**");
+    // Primeros segmentos de /franchises/... que no son un id de franquicia
+    private static final Set<String> NOT_FRANCHISE_IDS = Set.of("products", "analytics", "stock", "alerts");
+
+    private final FranchiseProperties.RateLimit rateLimit;
+    private final LoadShedder loadShedder;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, TokenBucket> clientBuckets;
+    private final Cache<String, TokenBucket> franchiseBuckets;
+    private final Map<PathPattern, AtomicInteger> expensiveInFlight = new LinkedHashMap<>();
+
+    public RateLimitFilter(FranchiseProperties franchiseProperties, LoadShedder loadShedder, MeterRegistry meterRegistry) {
+        this.rateLimit = franchiseProperties.getRateLimit();
+        this.loadShedder = loadShedder;
+        this.meterRegistry = meterRegistry;
+        this.clientBuckets = buckets(rateLimit);
+        this.franchiseBuckets = buckets(rateLimit);
+        for (String pattern : new String[]{"/franchises", "/franchises/products/max-stock",
+                "/franchises/{franchiseId}/products/max-stock", "/franchises/analytics/**",
+                "/franchises/{franchiseId}/branches/{branchId}/stock/*"}) {
+            expensiveInFlight.put(PathPatternParser.defaultInstance.parse(pattern), new AtomicInteger());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer path = request.getPath().pathWithinApplication();
+        if (!path.value().equals("/franchises") && !path.value().startsWith("/franchises/")) {
+            return chain.filter(exchange);
+        }
+        if (loadShedder.shouldShed()) {
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, rateLimit.getRetryAfter(), "overload");
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(remoteAddress(request))
+                .flatMap(client -> limit(exchange, chain, path, client));
+    }
+
+    private Mono<Void> limit(ServerWebExchange exchange, WebFilterChain chain, PathContainer path, String client) {
+        ServerHttpRequest request = exchange.getRequest();
+        long start = System.nanoTime();
+        long wait = clientBuckets.get(client, key -> new TokenBucket(
+                rateLimit.getClientPermitsPerSecond(), rateLimit.getClientBurst())).tryAcquire(start);
+        if (wait > 0) {
+            return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(wait), "client");
+        }
+        String franchiseId = franchiseId(path);
+        if (franchiseId != null) {
+            wait = franchiseBuckets.get(franchiseId, key -> new TokenBucket(
+                    rateLimit.getFranchisePermitsPerSecond(), rateLimit.getFranchiseBurst())).tryAcquire(start);
+            if (wait > 0) {
+                return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(wait), "franchise");
+            }
+        }
+
+        AtomicInteger inFlight = request.getMethod() == HttpMethod.GET ? expensiveInFlight(path) : null;
+        if (inFlight != null && inFlight.incrementAndGet() > rateLimit.getExpensiveConcurrency()) {
+            inFlight.decrementAndGet();
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, rateLimit.getRetryAfter(), "concurrency");
+        }
+        // Los endpoints costosos y el stream de alertas no cuentan para el p99: duran más por diseño
+        boolean recordLatency = inFlight == null && !ALERTS_PATH.matches(path);
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (inFlight != null) {
+                        inFlight.decrementAndGet();
+                    }
+                    if (recordLatency) {
+                        loadShedder.record(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    private AtomicInteger expensiveInFlight(PathContainer path) {
+        for (Map.Entry<PathPattern, AtomicInteger> entry : expensiveInFlight.entrySet()) {
+            if (entry.getKey().matches(path)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Detrás de un proxy, server.forward-headers-strategy=framework la toma de X-Forwarded-For
+    private static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        if (address == null) {
+            return "unknown";
+        }
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+
+    private static String franchiseId(PathContainer path) {
+        PathPattern.PathMatchInfo match = FRANCHISE_PATH.matchAndExtract(path);
+        if (match == null) {
+            return null;
+        }
+        String franchiseId = match.getUriVariables().get("franchiseId");
+        return NOT_FRANCHISE_IDS.contains(franchiseId) ? null : franchiseId;
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, Duration retryAfter, String reason) {
+        meterRegistry.counter("franchise.web.rejected", "reason", reason).increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        return response.setComplete();
+    }
+
+    private static Cache<String, TokenBucket> buckets(FranchiseProperties.RateLimit rateLimit) {
+        return Caffeine.newBuilder()
+                .maximumSize(rateLimit.getMaxKeys())
+                .expireAfterAccess(rateLimit.getIdleTimeout())
+                .build();
+    }
+}
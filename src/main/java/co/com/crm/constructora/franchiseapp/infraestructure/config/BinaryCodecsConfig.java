@@ -0,0 +1,32 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+
+/**
+ * Codecs binarios (CBOR y Smile) para negociar el formato de las respuestas grandes con el header Accept.
+ * application/json sigue siendo el formato por defecto.
+ */
+@Configuration
+public class BinaryCodecsConfig {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public CodecCustomizer binaryCodecsCustomizer() {
+        return BinaryCodecsConfig::register;
+    }
+
+    public static void register(CodecConfigurer configurer) {
+        configurer.customCodecs().register(new Jackson2CborEncoder());
+        configurer.customCodecs().register(new Jackson2CborDecoder());
+        configurer.customCodecs().register(new Jackson2SmileEncoder());
+        configurer.customCodecs().register(new Jackson2SmileDecoder());
+    }
+}
@@ -0,0 +1,196 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import com.mongodb.ReadPreference;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@ConfigurationProperties(prefix = "franchise")
+public class FranchiseProperties {
+
+    private MaxStock maxStock = new MaxStock();
+    private Storage storage = new Storage();
+    private Cache cache = new Cache();
+    private Pagination pagination = new Pagination();
+    private Bulk bulk = new Bulk();
+    private Web web = new Web();
+    private Alerts alerts = new Alerts();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Analytics analytics = new Analytics();
+    private Mongo mongo = new Mongo();
+    private RateLimit rateLimit = new RateLimit();
+    private Journal journal = new Journal();
+    private ReadBatching readBatching = new ReadBatching();
+    private Retry retry = new Retry();
+
+    @Data
+    public static class MaxStock {
+        private MaxStockStrategy strategy = MaxStockStrategy.AGGREGATION;
+    }
+
+    @Data
+    public static class Storage {
+        private StorageLayout layout = StorageLayout.EMBEDDED;
+        private boolean migrateOnStartup = false;
+    }
+
+    @Data
+    public static class Retry {
+        // Intentos en total, contando el primero
+        private int maxAttempts = 5;
+        private Duration minBackoff = Duration.ofMillis(20);
+        private Duration maxBackoff = Duration.ofMillis(500);
+        private double jitter = 0.5;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = false;
+        // Peso de una franquicia = 1 + sucursales + productos, así el límite acota también el número de entradas
+        private long maximumWeight = 200_000;
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Pagination {
+        private int defaultPageSize = 50;
+        private int maxPageSize = 500;
+
+        public int pageSize(Integer requested) {
+            if (requested == null || requested <= 0) {
+                return defaultPageSize;
+            }
+            return Math.min(requested, maxPageSize);
+        }
+    }
+
+    @Data
+    public static class Bulk {
+        private int batchSize = 1000;
+        private int concurrency = 4;
+    }
+
+    @Data
+    public static class Web {
+        // Sirve las lecturas más frecuentes con RouterFunction en lugar de FranchiseController
+        private boolean functionalReads = false;
+    }
+
+    @Data
+    public static class Alerts {
+        // Se emite una alerta cuando el stock resultante queda por debajo de este valor
+        private int lowStockThreshold = 10;
+        private int subscriberBuffer = 256;
+    }
+
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+        // Se vacía el buffer al llegar a este número de productos distintos o cada flushInterval
+        private int maxBatch = 1000;
+        private Duration flushInterval = Duration.ofMillis(200);
+        private int stripes = 16;
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Analytics {
+        // Límites del histograma de stock cuando la petición no los indica
+        private List<Integer> histogramBoundaries = List.of(0, 1, 10, 50, 100, 500, 1000);
+
+        public List<Integer> boundaries(List<Integer> requested) {
+            return requested == null || requested.isEmpty() ? histogramBoundaries : requested;
+        }
+    }
+
+    @Data
+    public static class Mongo {
+        private int maxPoolSize = 100;
+        private int minPoolSize = 0;
+        // Espera máxima por una conexión libre del pool (el driver espera 2 minutos por defecto)
+        private Duration maxWaitTime = Duration.ofSeconds(2);
+        private Duration maxConnectionIdleTime = Duration.ofMinutes(1);
+        private int maxConnecting = 2;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        // 0 = sin límite, como el driver; las agregaciones largas y el change stream dependen de ello
+        private Duration readTimeout = Duration.ZERO;
+        private Duration serverSelectionTimeout = Duration.ofSeconds(10);
+        // zlib viene con el JDK; snappy y zstd requieren snappy-java o zstd-jni en el classpath
+        private List<String> compressors = List.of("zlib");
+        // Solo para las consultas de lectura de los GET; las escrituras y sus lecturas previas van al primario
+        private String readPreference = "primary";
+        private Duration maxStaleness;
+
+        public ReadPreference queryReadPreference() {
+            return maxStaleness == null
+                    ? ReadPreference.valueOf(readPreference)
+                    : ReadPreference.valueOf(readPreference, List.of(), maxStaleness.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Data
+    public static class RateLimit {
+        private boolean enabled = false;
+        // Por cliente (usuario autenticado o dirección remota) y por franquicia
+        private double clientPermitsPerSecond = 50;
+        private int clientBurst = 100;
+        private double franchisePermitsPerSecond = 100;
+        private int franchiseBurst = 200;
+        // Los buckets sin uso durante idleTimeout se descartan; maxKeys acota la memoria ante claves arbitrarias
+        private long maxKeys = 100_000;
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        // Peticiones simultáneas por endpoint costoso (listado, stock máximo y analítica)
+        private int expensiveConcurrency = 8;
+        // Se rechaza con 503 una fracción de /franchises que crece con lo que el p99 o la cola de espera del pool
+        // superan estos valores; el p99 solo cuenta con sheddingMinSamples peticiones en la ventana
+        private Duration sheddingP99Latency = Duration.ofMillis(500);
+        private int sheddingWaitQueueSize = 50;
+        private long sheddingMinSamples = 100;
+        private Duration sheddingWindow = Duration.ofSeconds(10);
+        private Duration evaluationInterval = Duration.ofSeconds(1);
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Journal {
+        private boolean enabled = false;
+        // Commit en grupo: los movimientos se insertan juntos al llegar a maxBatch o cada flushInterval
+        private int maxBatch = 500;
+        private Duration flushInterval = Duration.ofMillis(10);
+        // Con maxPending movimientos sin escribir los nuevos se descartan; una petición espera el commit hasta appendTimeout
+        private int maxPending = 50_000;
+        private Duration appendTimeout = Duration.ofSeconds(2);
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+        private Duration retention = Duration.ofDays(30);
+        // Cada snapshotInterval se guarda el stock de las sucursales con movimientos, hasta snapshotLag atrás
+        private Duration snapshotInterval = Duration.ofHours(1);
+        private Duration snapshotLag = Duration.ofSeconds(30);
+        // Contada desde que un snapshot posterior lo reemplaza; el último de cada sucursal no caduca
+        private Duration snapshotRetention = Duration.ofDays(90);
+    }
+
+    @Data
+    public static class ReadBatching {
+        private boolean enabled = false;
+        // Las lecturas por id que llegan dentro de window se resuelven con una consulta $in de hasta maxBatch ids
+        private Duration window = Duration.ofMillis(2);
+        private int maxBatch = 100;
+        private int concurrency = 8;
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+    }
+
+    public enum MaxStockStrategy {
+        AGGREGATION,
+        IN_MEMORY,
+        MATERIALIZED
+    }
+
+    public enum StorageLayout {
+        EMBEDDED,
+        NORMALIZED
+    }
+}
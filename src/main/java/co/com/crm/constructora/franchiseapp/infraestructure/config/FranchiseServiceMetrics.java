@@ -0,0 +1,111 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Envuelve cada bean FranchiseService en un proxy que mide, por método, el tiempo entre la suscripción
+ * y la terminación del Mono/Flux devuelto, y registra el tamaño de las franquicias que devuelve.
+ */
+@Component
+public class FranchiseServiceMetrics implements BeanPostProcessor {
+
+    public static final String TIMER = "franchise.service";
+    public static final String BRANCHES = "franchise.payload.branches";
+    public static final String PRODUCTS = "franchise.payload.products";
+
+    // Se resuelve en la primera llamada para no inicializar el registro antes que los demás post-procesadores
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public FranchiseServiceMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof FranchiseService service)) {
+            return bean;
+        }
+        String implementation = ClassUtils.getUserClass(bean).getSimpleName();
+        return Proxy.newProxyInstance(FranchiseService.class.getClassLoader(), new Class<?>[]{FranchiseService.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(service, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getDeclaringClass() == Object.class) {
+                        return result;
+                    }
+                    if (result instanceof Mono<?> mono) {
+                        return Mono.defer(() -> {
+                            Timer.Sample sample = Timer.start(meterRegistry.getObject());
+                            return mono.doOnNext(this::recordPayload)
+                                    .doFinally(signal -> sample.stop(timer(implementation, method, signal)));
+                        });
+                    }
+                    if (result instanceof Flux<?> flux) {
+                        return Flux.defer(() -> {
+                            Timer.Sample sample = Timer.start(meterRegistry.getObject());
+                            return flux.doOnNext(this::recordPayload)
+                                    .doFinally(signal -> sample.stop(timer(implementation, method, signal)));
+                        });
+                    }
+                    return result;
+                });
+    }
+
+    private Timer timer(String implementation, Method method, SignalType signal) {
+        return Timer.builder(TIMER)
+                .description("FranchiseService operations, from subscription to termination")
+                .tag("implementation", implementation)
+                .tag("method", method.getName())
+                .tag("outcome", outcome(signal))
+                .publishPercentileHistogram()
+                .register(meterRegistry.getObject());
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancelled";
+            default -> "success";
+        };
+    }
+
+    private void recordPayload(Object value) {
+        if (!(value instanceof Franchise franchise) || franchise.getBranches() == null) {
+            return;
+        }
+        MeterRegistry registry = meterRegistry.getObject();
+        DistributionSummary.builder(BRANCHES)
+                .description("Branches per franchise returned by the service")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(franchise.getBranches().size());
+        DistributionSummary.builder(PRODUCTS)
+                .description("Products per franchise returned by the service")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(franchise.getBranches().stream()
+                        .map(Branch::getProducts)
+                        .mapToInt(products -> products == null ? 0 : products.size())
+                        .sum());
+    }
+}
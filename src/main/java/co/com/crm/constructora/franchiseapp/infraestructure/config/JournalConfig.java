@@ -0,0 +1,25 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import co.com.crm.constructora.franchiseapp.domain.service.StockJournal;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockMovementRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@ConditionalOnProperty(name = "franchise.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+    // close() detiene los snapshots y hace el último flush al apagar la aplicación
+    @Bean(destroyMethod = "close")
+    public StockJournal stockJournal(StockMovementRepository stockMovementRepository,
+                                     StockSnapshotRepository stockSnapshotRepository,
+                                     FranchiseProperties franchiseProperties, MeterRegistry meterRegistry) {
+        return new StockJournal(stockMovementRepository, stockSnapshotRepository, franchiseProperties, meterRegistry,
+                Clock.systemUTC());
+    }
+}
@@ -0,0 +1,47 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import com.mongodb.MongoCompressor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ajustes del pool, timeouts y compresión del cliente reactivo de MongoDB a partir de franchise.mongo.*.
+ * Se aplica después del customizer de Spring Boot, así que estos valores prevalecen sobre las opciones de la URI.
+ * Las métricas del pool (mongodb.driver.pool.*) las registra management.metrics.mongo.connectionpool.enabled.
+ */
+@Configuration
+public class MongoClientConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer franchiseMongoClientSettings(FranchiseProperties franchiseProperties) {
+        FranchiseProperties.Mongo mongo = franchiseProperties.getMongo();
+        return builder -> builder
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(mongo.getMaxPoolSize())
+                        .minSize(mongo.getMinPoolSize())
+                        .maxWaitTime(mongo.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(mongo.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnecting(mongo.getMaxConnecting()))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout((int) mongo.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout((int) mongo.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(mongo.getServerSelectionTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                .compressorList(mongo.getCompressors().stream()
+                        .map(MongoClientConfig::compressor)
+                        .toList());
+    }
+
+    static MongoCompressor compressor(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "zlib" -> MongoCompressor.createZlibCompressor();
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            default -> throw new IllegalArgumentException("Unsupported MongoDB compressor: " + name);
+        };
+    }
+}
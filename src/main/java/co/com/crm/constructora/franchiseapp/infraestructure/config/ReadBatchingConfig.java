@@ -0,0 +1,21 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseBatchLoader;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "franchise.read-batching.enabled", havingValue = "true")
+public class ReadBatchingConfig {
+
+    // close() resuelve las lecturas que queden en espera al apagar la aplicación
+    @Bean(destroyMethod = "close")
+    public FranchiseBatchLoader franchiseBatchLoader(FranchiseRepository franchiseRepository,
+                                                     FranchiseProperties franchiseProperties,
+                                                     MeterRegistry meterRegistry) {
+        return new FranchiseBatchLoader(franchiseRepository, franchiseProperties, meterRegistry);
+    }
+}
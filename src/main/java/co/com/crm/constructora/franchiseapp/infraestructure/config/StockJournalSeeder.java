@@ -0,0 +1,51 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.domain.service.StockJournal;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseStorageMigrationRunner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+// Siembra los snapshots base antes de que arranque el servidor web (fase DEFAULT_PHASE - 2048), así ninguna
+// escritura de esta instancia se cuela entre la base y la lectura del stock
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "franchise.journal.enabled", havingValue = "true")
+public class StockJournalSeeder implements SmartLifecycle {
+
+    // Después de FranchiseStorageMigrationRunner: con el layout normalizado lee las franquicias ya migradas
+    static final int PHASE = FranchiseStorageMigrationRunner.PHASE + 1024;
+
+    private final StockJournal stockJournal;
+    private final FranchiseService franchiseService;
+    private volatile boolean running;
+
+    public StockJournalSeeder(StockJournal stockJournal, FranchiseService franchiseService) {
+        this.stockJournal = stockJournal;
+        this.franchiseService = franchiseService;
+    }
+
+    @Override
+    public void start() {
+        Long seeded = stockJournal.seed(franchiseService.getAllFranchises()).block();
+        log.info("Seeded the stock journal with the current stock of {} branches", seeded);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
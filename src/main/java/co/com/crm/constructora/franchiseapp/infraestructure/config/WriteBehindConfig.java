@@ -0,0 +1,30 @@
+package co.com.crm.constructora.franchiseapp.infraestructure.config;
+
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.domain.service.StockJournal;
+import co.com.crm.constructora.franchiseapp.domain.service.StockWriteBehind;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.ProductDocumentRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties.StorageLayout;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+
+@Configuration
+@ConditionalOnProperty(name = "franchise.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfig {
+
+    // close() hace el último flush al apagar la aplicación; depende del journal, que se cierra después
+    @Bean(destroyMethod = "close")
+    public StockWriteBehind stockWriteBehind(FranchiseProperties franchiseProperties, MeterRegistry meterRegistry,
+                                             FranchiseRepository franchiseRepository,
+                                             ProductDocumentRepository productDocumentRepository,
+                                             LowStockAlerts lowStockAlerts, Optional<StockJournal> stockJournal) {
+        return new StockWriteBehind(franchiseProperties.getStorage().getLayout() == StorageLayout.NORMALIZED
+                ? productDocumentRepository
+                : franchiseRepository, lowStockAlerts, franchiseProperties, meterRegistry, stockJournal);
+    }
+}
@@ -0,0 +1,139 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult.Status;
+import co.com.crm.constructora.franchiseapp.domain.service.BulkStockUpdater;
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockBulkOperations;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkStockUpdaterTest {
+
+    @Mock
+    private StockBulkOperations operations;
+
+    private LowStockAlerts lowStockAlerts;
+    private BulkStockUpdater bulkStockUpdater;
+
+    @BeforeEach
+    void setUp() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getBulk().setBatchSize(2);
+        lowStockAlerts = new LowStockAlerts(franchiseProperties);
+        bulkStockUpdater = new BulkStockUpdater(franchiseProperties, lowStockAlerts);
+    }
+
+    @Test
+    void apply_WritesOneBulkPerBatch() {
+        StockUpdate update1 = new StockUpdate("1", "b1", "p1", 10);
+        StockUpdate update2 = new StockUpdate("1", "b1", "p2", 20);
+        StockUpdate update3 = new StockUpdate("2", "b1", "p1", 30);
+
+        when(operations.bulkSetProductStock(anyCollection()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        StepVerifier.create(bulkStockUpdater.apply(Flux.just(update1, update2, update3), operations))
+                .expectNext(StockUpdateResult.of(update1, Status.UPDATED))
+                .expectNext(StockUpdateResult.of(update2, Status.UPDATED))
+                .expectNext(StockUpdateResult.of(update3, Status.UPDATED))
+                .verifyComplete();
+
+        verify(operations, times(2)).bulkSetProductStock(anyCollection());
+        verify(operations, never()).findExistingProductKeys(any(), any());
+    }
+
+    @Test
+    void apply_CutsBatchesPerFranchise() {
+        StockUpdate first1 = new StockUpdate("1", "b1", "p1", 10);
+        StockUpdate first2 = new StockUpdate("2", "b1", "p1", 20);
+        StockUpdate second1 = new StockUpdate("1", "b1", "p2", 30);
+        StockUpdate second2 = new StockUpdate("2", "b1", "p2", 40);
+
+        when(operations.bulkSetProductStock(anyCollection()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        StepVerifier.create(bulkStockUpdater.apply(Flux.just(first1, first2, second1, second2), operations))
+                .expectNext(StockUpdateResult.of(first1, Status.UPDATED))
+                .expectNext(StockUpdateResult.of(second1, Status.UPDATED))
+                .expectNext(StockUpdateResult.of(first2, Status.UPDATED))
+                .expectNext(StockUpdateResult.of(second2, Status.UPDATED))
+                .verifyComplete();
+
+        verify(operations).bulkSetProductStock(List.of(first1, second1));
+        verify(operations).bulkSetProductStock(List.of(first2, second2));
+    }
+
+    @Test
+    void apply_AlertsOnlyProductsThatCrossTheThreshold() {
+        StockUpdate crossing = new StockUpdate("1", "b1", "p1", 4);
+        StockUpdate alreadyLow = new StockUpdate("1", "b1", "p2", 3);
+        StockUpdate high = new StockUpdate("1", "b1", "p3", 40);
+
+        when(operations.findProducts(eq("1"), eq(List.of(crossing, alreadyLow)))).thenReturn(Mono.just(Map.of(
+                "b1/p1", new Product("p1", "Product 1", 15),
+                "b1/p2", new Product("p2", "Product 2", 5))));
+        when(operations.bulkSetProductStock(anyCollection()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        StepVerifier alerts = StepVerifier.create(lowStockAlerts.stream().take(Duration.ofMillis(500)))
+                .expectNext(new LowStockAlert("1", "b1", "p1", "Product 1", 4, 10, LowStockAlert.Reason.STOCK_CHANGED))
+                .expectComplete()
+                .verifyLater();
+
+        StepVerifier.create(bulkStockUpdater.apply(Flux.just(crossing, alreadyLow, high), operations))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        alerts.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void apply_ReportsMissingProducts() {
+        StockUpdate update1 = new StockUpdate("1", "b1", "p1", 10);
+        StockUpdate update2 = new StockUpdate("1", "b1", "missing", 20);
+
+        when(operations.bulkSetProductStock(anyCollection())).thenReturn(Mono.just(1L));
+        when(operations.findExistingProductKeys(eq("1"), anyCollection())).thenReturn(Mono.just(Set.of("b1/p1")));
+
+        StepVerifier.create(bulkStockUpdater.apply(Flux.just(update1, update2), operations))
+                .expectNext(StockUpdateResult.of(update1, Status.UPDATED))
+                .expectNext(StockUpdateResult.of(update2, Status.NOT_FOUND))
+                .verifyComplete();
+    }
+
+    @Test
+    void apply_MarksBatchAsFailedOnError() {
+        StockUpdate update = new StockUpdate("1", "b1", "p1", 10);
+
+        when(operations.bulkSetProductStock(anyCollection())).thenReturn(Mono.error(new IllegalStateException("timeout")));
+
+        StepVerifier.create(bulkStockUpdater.apply(Flux.just(update), operations))
+                .expectNext(StockUpdateResult.of(update, Status.FAILED))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,80 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.domain.service.CachingFranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingFranchiseServiceTest {
+
+    @Mock
+    private FranchiseService delegate;
+
+    private CachingFranchiseService franchiseService;
+
+    @BeforeEach
+    void setUp() {
+        franchiseService = new CachingFranchiseService(delegate, new FranchiseProperties(), new SimpleMeterRegistry(),
+                Optional.empty());
+    }
+
+    @Test
+    void getFranchiseById_ConcurrentMissesShareOneLoad() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+        franchise.setName("Franchise 1");
+
+        when(delegate.getFranchiseById("1")).thenReturn(Mono.just(franchise).delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(Mono.zip(franchiseService.getFranchiseById("1"), franchiseService.getFranchiseById("1")))
+                .expectNextMatches(both -> both.getT1() == franchise && both.getT2() == franchise)
+                .verifyComplete();
+        StepVerifier.create(franchiseService.getFranchiseById("1"))
+                .expectNext(franchise)
+                .verifyComplete();
+
+        verify(delegate, times(1)).getFranchiseById("1");
+    }
+
+    @Test
+    void updateFranchiseName_InvalidatesCachedFranchise() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+        franchise.setName("Franchise 1");
+
+        when(delegate.getFranchiseById("1")).thenReturn(Mono.just(franchise));
+        when(delegate.updateFranchiseName("1", "New Franchise Name", null)).thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(franchiseService.getFranchiseById("1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(franchiseService.updateFranchiseName("1", "New Franchise Name", null)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(franchiseService.getFranchiseById("1")).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).getFranchiseById("1");
+    }
+
+    @Test
+    void getFranchiseById_MissingFranchiseIsNotCached() {
+        when(delegate.getFranchiseById("1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(franchiseService.getFranchiseById("1")).verifyComplete();
+        StepVerifier.create(franchiseService.getFranchiseById("1")).verifyComplete();
+
+        verify(delegate, times(2)).getFranchiseById("1");
+    }
+}
@@ -0,0 +1,125 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseBatchLoader;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FranchiseBatchLoaderTest {
+
+    @Mock
+    private FranchiseRepository franchiseRepository;
+
+    private FranchiseBatchLoader franchiseBatchLoader;
+
+    @BeforeEach
+    void setUp() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        // Sin ventana periódica durante el test: solo los dispatch explícitos
+        franchiseProperties.getReadBatching().setWindow(Duration.ofHours(1));
+        franchiseBatchLoader = new FranchiseBatchLoader(franchiseRepository, franchiseProperties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        franchiseBatchLoader.close();
+    }
+
+    @Test
+    void dispatch_ResolvesPendingReadsWithOneQueryPerView() {
+        when(franchiseRepository.findByIds(Set.of("1", "2", "3"), FranchiseView.FULL, ReadPreference.primary()))
+                .thenReturn(Flux.just(franchise("1"), franchise("2")));
+        when(franchiseRepository.findByIds(Set.of("1"), FranchiseView.SUMMARY, ReadPreference.primary()))
+                .thenReturn(Flux.just(franchise("1")));
+
+        // Mono.zip se suscribe a todas las lecturas a la vez: quedan en espera hasta el dispatch
+        StepVerifier.create(Mono.zip(
+                                id(franchiseBatchLoader.load("1", FranchiseView.FULL)),
+                                id(franchiseBatchLoader.load("2", FranchiseView.FULL)),
+                                id(franchiseBatchLoader.load("1", FranchiseView.FULL)),
+                                id(franchiseBatchLoader.load("3", FranchiseView.FULL)),
+                                id(franchiseBatchLoader.load("1", FranchiseView.SUMMARY)))
+                        .map(ids -> List.of(ids.getT1(), ids.getT2(), ids.getT3(), ids.getT4(), ids.getT5())))
+                .then(() -> franchiseBatchLoader.dispatch().subscribe())
+                .expectNext(List.of("1", "2", "1", "not found", "1"))
+                .verifyComplete();
+
+        verify(franchiseRepository, times(2)).findByIds(any(), any(), any());
+    }
+
+    @Test
+    void dispatch_FailsEveryReadOfAFailedBatch() {
+        when(franchiseRepository.findByIds(any(), any(), any())).thenReturn(Flux.error(new RuntimeException("timeout")));
+
+        StepVerifier.create(Mono.when(franchiseBatchLoader.load("1", FranchiseView.FULL),
+                        franchiseBatchLoader.load("2", FranchiseView.FULL)))
+                .then(() -> franchiseBatchLoader.dispatch().subscribe())
+                .verifyErrorMessage("timeout");
+    }
+
+    @Test
+    void dispatch_GivesEachReaderOfTheSameIdItsOwnInstance() {
+        when(franchiseRepository.findByIds(Set.of("1"), FranchiseView.SUMMARY, ReadPreference.primary()))
+                .thenReturn(Flux.just(franchise("1")));
+
+        StepVerifier.create(Mono.zip(franchiseBatchLoader.load("1", FranchiseView.SUMMARY),
+                                franchiseBatchLoader.load("1", FranchiseView.SUMMARY)))
+                .then(() -> franchiseBatchLoader.dispatch().subscribe())
+                .assertNext(loaded -> {
+                    assertNotSame(loaded.getT1(), loaded.getT2());
+                    assertEquals(loaded.getT1(), loaded.getT2());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void load_ReadsFromThePrimaryInTheNormalizedLayout() {
+        franchiseBatchLoader.close();
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getReadBatching().setWindow(Duration.ofHours(1));
+        franchiseProperties.getMongo().setReadPreference("secondaryPreferred");
+        franchiseProperties.getStorage().setLayout(FranchiseProperties.StorageLayout.NORMALIZED);
+        franchiseBatchLoader = new FranchiseBatchLoader(franchiseRepository, franchiseProperties, new SimpleMeterRegistry());
+        when(franchiseRepository.findByIds(any(), any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(franchiseBatchLoader.load("1", FranchiseView.SUMMARY))
+                .then(() -> franchiseBatchLoader.dispatch().subscribe())
+                .verifyComplete();
+
+        verify(franchiseRepository).findByIds(Set.of("1"), FranchiseView.SUMMARY, ReadPreference.primary());
+    }
+
+    private static Mono<String> id(Mono<Franchise> franchise) {
+        return franchise.map(Franchise::getId).defaultIfEmpty("not found");
+    }
+
+    private static Franchise franchise(String id) {
+        Franchise franchise = new Franchise();
+        franchise.setId(id);
+        return franchise;
+    }
+}
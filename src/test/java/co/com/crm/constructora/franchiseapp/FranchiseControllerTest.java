@@ -3,28 +3,44 @@ package co.com.crm.constructora.franchiseapp;
 
 import co.com.crm.constructora.franchiseapp.domain.model.Branch;
 import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
 import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
 import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.StockBucket;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdateResult;
+import co.com.crm.constructora.franchiseapp.domain.model.VersionMismatchException;
 import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
 import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.FranchiseController;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.BinaryCodecsConfig;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,7 +56,9 @@ class FranchiseControllerTest {
 
     @BeforeEach
     void setUp() {
-        webTestClient = WebTestClient.bindToController(franchiseController).build();
+        webTestClient = WebTestClient.bindToController(franchiseController)
+                .httpMessageCodecs(BinaryCodecsConfig::register)
+                .build();
     }
 
     @Test
@@ -77,6 +95,38 @@ class FranchiseControllerTest {
                 .isEqualTo(franchise);
     }
 
+    @Test
+    void getFranchiseById_NotModified() {
+        when(franchiseService.getFranchiseVersion("1")).thenReturn(Mono.just(7L));
+
+        webTestClient.get()
+                .uri("/franchises/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7-full\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7-full\"")
+                .expectBody().isEmpty();
+
+        verify(franchiseService, never()).getFranchiseById("1");
+    }
+
+    @Test
+    void getFranchiseById_ETagChanged() {
+        Franchise franchise = new Franchise("1", "Franchise 1", List.of(), 8L);
+
+        when(franchiseService.getFranchiseVersion("1")).thenReturn(Mono.just(8L));
+        when(franchiseService.getFranchiseById("1")).thenReturn(Mono.just(franchise));
+
+        webTestClient.get()
+                .uri("/franchises/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7-full\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"8-full\"")
+                .expectBody(Franchise.class)
+                .isEqualTo(franchise);
+    }
+
     @Test
     void getAllFranchises_Success() {
         Franchise franchise1 = new Franchise();
@@ -87,7 +137,7 @@ class FranchiseControllerTest {
         franchise2.setId("2");
         franchise2.setName("Franchise 2");
 
-        when(franchiseService.getAllFranchises()).thenReturn(Flux.just(franchise1, franchise2));
+        when(franchiseService.getFranchisesPage(null, null, FranchiseView.FULL)).thenReturn(Flux.just(franchise1, franchise2));
 
         webTestClient.get()
                 .uri("/franchises")
@@ -98,6 +148,53 @@ class FranchiseControllerTest {
                 .contains(franchise1, franchise2);
     }
 
+    @Test
+    void getAllFranchises_NextSummaryPage() {
+        Franchise franchise = new Franchise();
+        franchise.setId("2");
+        franchise.setName("Franchise 2");
+
+        when(franchiseService.getFranchisesPage("1", 10, FranchiseView.SUMMARY)).thenReturn(Flux.just(franchise));
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/franchises")
+                        .queryParam("after", "1")
+                        .queryParam("limit", 10)
+                        .queryParam("view", "SUMMARY")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Franchise.class)
+                .hasSize(1)
+                .contains(franchise);
+    }
+
+    @Test
+    void getAllFranchises_StreamsNdjson() {
+        Franchise franchise1 = new Franchise();
+        franchise1.setId("1");
+        franchise1.setName("Franchise 1");
+
+        Franchise franchise2 = new Franchise();
+        franchise2.setId("2");
+        franchise2.setName("Franchise 2");
+
+        when(franchiseService.getFranchisesPage(null, null, FranchiseView.FULL)).thenReturn(Flux.just(franchise1, franchise2));
+
+        Flux<Franchise> body = webTestClient.get()
+                .uri("/franchises")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Franchise.class)
+                .getResponseBody();
+
+        StepVerifier.create(body)
+                .expectNext(franchise1, franchise2)
+                .verifyComplete();
+    }
+
     @Test
     void deleteFranchise_Success() {
         when(franchiseService.deleteFranchise("1")).thenReturn(Mono.empty());
@@ -111,21 +208,11 @@ class FranchiseControllerTest {
     @Test
     void addBranch_Success() {
         Branch branch = new Branch();
-        branch.setId("b1");
         branch.setName("Branch 1");
 
-        Franchise franchise = new Franchise();
-        franchise.setId("1");
-        franchise.setName("Franchise 1");
-        franchise.setBranches(new ArrayList<>());
-
-        Franchise updatedFranchise = new Franchise();
-        updatedFranchise.setId("1");
-        updatedFranchise.setName("Franchise 1");
-        updatedFranchise.setBranches(Collections.singletonList(branch));
-
+        Branch created = new Branch("b1", "Branch 1", null);
 
-        when(franchiseService.addBranch(anyString(), any(Branch.class))).thenReturn(Mono.just(updatedFranchise));
+        when(franchiseService.addBranch(anyString(), any(Branch.class))).thenReturn(Mono.just(created));
 
         webTestClient.post()
                 .uri("/franchises/1/branches")
@@ -133,8 +220,25 @@ class FranchiseControllerTest {
                 .bodyValue(branch)
                 .exchange()
                 .expectStatus().isOk()
-                .expectBody(Franchise.class)
-                .isEqualTo(updatedFranchise);
+                .expectBody(Branch.class)
+                .isEqualTo(created);
+    }
+
+    @Test
+    void addProducts_Success() {
+        List<Product> products = List.of(new Product(null, "Product 1", 5), new Product(null, "Product 2", 0));
+        List<Product> created = List.of(new Product("p1", "Product 1", 5), new Product("p2", "Product 2", 0));
+
+        when(franchiseService.addProducts("1", "b1", products)).thenReturn(Flux.fromIterable(created));
+
+        webTestClient.post()
+                .uri("/franchises/1/branches/b1/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(products)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class)
+                .isEqualTo(created);
     }
 
     @Test
@@ -164,12 +268,14 @@ class FranchiseControllerTest {
         branch2.setId("b2");
         branch2.setName("Branch 2");
 
+        when(franchiseService.getFranchiseVersion("1")).thenReturn(Mono.just(3L));
         when(franchiseService.getBranchesByFranchiseId("1")).thenReturn(Flux.just(branch1, branch2));
 
         webTestClient.get()
                 .uri("/franchises/1/branches")
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-full\"")
                 .expectBodyList(Branch.class)
                 .hasSize(2)
                 .contains(branch1, branch2);
@@ -224,6 +330,48 @@ class FranchiseControllerTest {
                 .expectStatus().is5xxServerError();
     }
 
+    @Test
+    void getMaxStockProducts_Success() {
+        Product product1 = new Product();
+        product1.setId("p1");
+        product1.setName("Product 1");
+        product1.setStock(10);
+
+        Product product2 = new Product();
+        product2.setId("p2");
+        product2.setName("Product 2");
+        product2.setStock(20);
+
+        ProductWithFranchise pwf1 = new ProductWithFranchise("1", "Franchise 1", "b1", "Branch 1", product1);
+        ProductWithFranchise pwf2 = new ProductWithFranchise("2", "Franchise 2", "b2", "Branch 2", product2);
+
+        when(franchiseService.getMaxStockProducts()).thenReturn(Flux.just(pwf1, pwf2));
+
+        webTestClient.get()
+                .uri("/franchises/products/max-stock")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductWithFranchise.class)
+                .hasSize(2)
+                .contains(pwf1, pwf2);
+    }
+
+    @Test
+    void searchProducts_Success() {
+        ProductWithFranchise match = new ProductWithFranchise("1", "Franchise 1", "b1", "Branch 1",
+                new Product("p1", "Product 1", 10));
+
+        when(franchiseService.searchProducts("prod", ProductSearch.Match.CONTAINS, "1", 5, 20)).thenReturn(Flux.just(match));
+
+        webTestClient.get()
+                .uri("/franchises/products/search?q=prod&match=CONTAINS&franchiseId=1&minStock=5&limit=20")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductWithFranchise.class)
+                .hasSize(1)
+                .contains(match);
+    }
+
 
     @Test
     void updateFranchiseName_Success() {
@@ -235,7 +383,7 @@ class FranchiseControllerTest {
         updatedFranchise.setId("1");
         updatedFranchise.setName("New Franchise Name");
 
-        when(franchiseService.updateFranchiseName("1", "New Franchise Name")).thenReturn(Mono.just(updatedFranchise));
+        when(franchiseService.updateFranchiseName("1", "New Franchise Name", null)).thenReturn(Mono.just(updatedFranchise));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/name")
@@ -249,7 +397,7 @@ class FranchiseControllerTest {
 
     @Test
     void updateFranchiseName_FranchiseNotFound() {
-        when(franchiseService.updateFranchiseName("1", "New Franchise Name")).thenReturn(Mono.error(new Exception("Franchise not found")));
+        when(franchiseService.updateFranchiseName("1", "New Franchise Name", null)).thenReturn(Mono.error(new Exception("Franchise not found")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/name")
@@ -274,7 +422,7 @@ class FranchiseControllerTest {
         franchise.setName("Franchise 1");
         franchise.setBranches(Collections.singletonList(branch));
 
-        when(franchiseService.updateBranchName("1", "b1", "New Branch Name")).thenReturn(Mono.just(updatedBranch));
+        when(franchiseService.updateBranchName("1", "b1", "New Branch Name", null)).thenReturn(Mono.just(updatedBranch));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/name")
@@ -288,7 +436,7 @@ class FranchiseControllerTest {
 
     @Test
     void updateBranchName_FranchiseNotFound() {
-        when(franchiseService.updateBranchName("1", "b1", "New Branch Name")).thenReturn(Mono.error(new Exception("Franchise not found")));
+        when(franchiseService.updateBranchName("1", "b1", "New Branch Name", null)).thenReturn(Mono.error(new Exception("Franchise not found")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/name")
@@ -300,7 +448,7 @@ class FranchiseControllerTest {
 
     @Test
     void updateBranchName_BranchNotFound() {
-        when(franchiseService.updateBranchName("1", "b1", "New Branch Name")).thenReturn(Mono.error(new Exception("Branch not found in this franchise")));
+        when(franchiseService.updateBranchName("1", "b1", "New Branch Name", null)).thenReturn(Mono.error(new Exception("Branch not found in this franchise")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/name")
@@ -329,7 +477,7 @@ class FranchiseControllerTest {
         franchise.setName("Franchise 1");
         franchise.setBranches(Collections.singletonList(branch));
 
-        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name")).thenReturn(Mono.just(updatedProduct));
+        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name", null)).thenReturn(Mono.just(updatedProduct));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/name")
@@ -343,7 +491,7 @@ class FranchiseControllerTest {
 
     @Test
     void updateProductName_FranchiseNotFound() {
-        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name")).thenReturn(Mono.error(new Exception("Franchise not found")));
+        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name", null)).thenReturn(Mono.error(new Exception("Franchise not found")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/name")
@@ -355,7 +503,7 @@ class FranchiseControllerTest {
 
     @Test
     void updateProductName_BranchNotFound() {
-        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name")).thenReturn(Mono.error(new Exception("Branch not found in this franchise")));
+        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name", null)).thenReturn(Mono.error(new Exception("Branch not found in this franchise")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/name")
@@ -367,7 +515,7 @@ class FranchiseControllerTest {
 
     @Test
     void updateProductName_ProductNotFound() {
-        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name")).thenReturn(Mono.error(new Exception("Product not found in this branch")));
+        when(franchiseService.updateProductName("1", "b1", "p1", "New Product Name", null)).thenReturn(Mono.error(new Exception("Product not found in this branch")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/name")
@@ -400,7 +548,7 @@ class FranchiseControllerTest {
         franchise.setName("Franchise 1");
         franchise.setBranches(Collections.singletonList(branch));
 
-        when(franchiseService.modifyProductStock("1", "b1", "p1", 20)).thenReturn(Mono.just(updatedProduct));
+        when(franchiseService.modifyProductStock("1", "b1", "p1", 20, null)).thenReturn(Mono.just(updatedProduct));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
@@ -412,9 +560,22 @@ class FranchiseControllerTest {
                 .isEqualTo(updatedProduct);
     }
 
+    @Test
+    void modifyProductStock_IfMatchMismatch() {
+        when(franchiseService.modifyProductStock("1", "b1", "p1", 20, 4L)).thenReturn(Mono.error(new VersionMismatchException()));
+
+        webTestClient.put()
+                .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
+                        .queryParam("newStock", 20)
+                        .build())
+                .header(HttpHeaders.IF_MATCH, "\"4-full\"")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void modifyProductStock_FranchiseNotFound() {
-        when(franchiseService.modifyProductStock("1", "b1", "p1", 20)).thenReturn(Mono.error(new Exception("Franchise not found")));
+        when(franchiseService.modifyProductStock("1", "b1", "p1", 20, null)).thenReturn(Mono.error(new Exception("Franchise not found")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
@@ -426,7 +587,7 @@ class FranchiseControllerTest {
 
     @Test
     void modifyProductStock_BranchNotFound() {
-        when(franchiseService.modifyProductStock("1", "b1", "p1", 20)).thenReturn(Mono.error(new Exception("Branch not found in this franchise")));
+        when(franchiseService.modifyProductStock("1", "b1", "p1", 20, null)).thenReturn(Mono.error(new Exception("Branch not found in this franchise")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
@@ -438,7 +599,7 @@ class FranchiseControllerTest {
 
     @Test
     void modifyProductStock_ProductNotFound() {
-        when(franchiseService.modifyProductStock("1", "b1", "p1", 20)).thenReturn(Mono.error(new Exception("Product not found in this branch")));
+        when(franchiseService.modifyProductStock("1", "b1", "p1", 20, null)).thenReturn(Mono.error(new Exception("Product not found in this branch")));
 
         webTestClient.put()
                 .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
@@ -447,4 +608,138 @@ class FranchiseControllerTest {
                 .exchange()
                 .expectStatus().is5xxServerError();
     }
-}
\ No newline at end of file
+
+    @Test
+    void setProductStock_Success() {
+        when(franchiseService.setProductStock("1", "b1", "p1", 20)).thenReturn(Mono.empty());
+
+        webTestClient.patch()
+                .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
+                        .queryParam("newStock", 20)
+                        .build())
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void setProductStock_ProductNotFound() {
+        when(franchiseService.setProductStock("1", "b1", "p1", 20)).thenReturn(Mono.error(new Exception("Franchise, branch or product not found")));
+
+        webTestClient.patch()
+                .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock")
+                        .queryParam("newStock", 20)
+                        .build())
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void adjustProductStock_Success() {
+        when(franchiseService.adjustProductStock("1", "b1", "p1", -5)).thenReturn(Mono.empty());
+
+        webTestClient.patch()
+                .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock/adjust")
+                        .queryParam("delta", -5)
+                        .build())
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void adjustProductStock_ProductNotFound() {
+        when(franchiseService.adjustProductStock("1", "b1", "p1", -5)).thenReturn(Mono.error(new Exception("Franchise, branch or product not found")));
+
+        webTestClient.patch()
+                .uri(uriBuilder -> uriBuilder.path("/franchises/1/branches/b1/products/p1/stock/adjust")
+                        .queryParam("delta", -5)
+                        .build())
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void bulkUpdateStock_Success() {
+        StockUpdate update1 = new StockUpdate("1", "b1", "p1", 10);
+        StockUpdate update2 = new StockUpdate("1", "b1", "p2", 20);
+        StockUpdateResult result1 = StockUpdateResult.of(update1, StockUpdateResult.Status.UPDATED);
+        StockUpdateResult result2 = StockUpdateResult.of(update2, StockUpdateResult.Status.NOT_FOUND);
+
+        when(franchiseService.bulkUpdateStock(any())).thenReturn(Flux.just(result1, result2));
+
+        webTestClient.post()
+                .uri("/franchises/stock/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(update1, update2))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(StockUpdateResult.class)
+                .hasSize(2)
+                .contains(result1, result2);
+    }
+
+    @Test
+    void lowStockAlerts_StreamsEventsForFranchise() {
+        LowStockAlert alert = new LowStockAlert("1", "b1", "p1", "Product 1", 2, 10, LowStockAlert.Reason.STOCK_CHANGED);
+        LowStockAlert other = new LowStockAlert("2", "b1", "p1", "Product 1", 2, 10, LowStockAlert.Reason.STOCK_CHANGED);
+
+        when(franchiseService.lowStockAlerts()).thenReturn(Flux.just(other, alert));
+
+        webTestClient.get()
+                .uri("/franchises/alerts/low-stock?franchiseId=1")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LowStockAlert.class)
+                .hasSize(1)
+                .contains(alert);
+    }
+
+    @Test
+    void getFranchiseById_BranchesView() {
+        Franchise franchise = new Franchise("1", "Franchise 1", List.of(new Branch("b1", "Branch 1", null)), 2L);
+
+        when(franchiseService.getFranchiseById("1", FranchiseView.BRANCHES)).thenReturn(Mono.just(franchise));
+
+        webTestClient.get()
+                .uri("/franchises/1?view=BRANCHES")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Franchise.class)
+                .isEqualTo(franchise);
+    }
+
+    @Test
+    void getFranchiseById_Cbor() throws IOException {
+        Franchise franchise = new Franchise("1", "Franchise 1", List.of(new Branch("b1", "Branch 1",
+                List.of(new Product("p1", "Product 1", 5)))), 1L);
+
+        when(franchiseService.getFranchiseById("1")).thenReturn(Mono.just(franchise));
+
+        byte[] body = webTestClient.get()
+                .uri("/franchises/1")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(franchise, new CBORMapper().readValue(body, Franchise.class));
+    }
+
+    @Test
+    void getStockHistogram_Success() {
+        List<StockBucket> buckets = List.of(new StockBucket(0, 10, 3), new StockBucket(10, null, 1));
+
+        when(franchiseService.getStockHistogram(List.of(0, 10), null)).thenReturn(Flux.fromIterable(buckets));
+
+        webTestClient.get()
+                .uri("/franchises/analytics/stock-histogram?boundaries=0,10")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(StockBucket.class)
+                .isEqualTo(buckets);
+    }
+}
@@ -0,0 +1,110 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.service.FranchiseLookup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FranchiseLookupTest {
+
+    private final FranchiseLookup franchiseLookup = new FranchiseLookup();
+    private Franchise franchise;
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = new ArrayList<>(List.of(new Product("p1", "Product 1", 10), new Product("p2", "Product 2", 5)));
+        List<Branch> branches = new ArrayList<>(List.of(new Branch("b1", "Branch 1", products)));
+        franchise = new Franchise("f1", "Franchise 1", branches, 0L);
+    }
+
+    @Test
+    void product_Found() {
+        StepVerifier.create(franchiseLookup.product(franchise, "b1", "p2"))
+                .expectNextMatches(product -> product.getName().equals("Product 2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void product_BranchNotFound() {
+        StepVerifier.create(franchiseLookup.product(franchise, "missing", "p1"))
+                .expectErrorMessage("Branch not found in this franchise")
+                .verify();
+    }
+
+    @Test
+    void product_ProductNotFound() {
+        StepVerifier.create(franchiseLookup.product(franchise, "b1", "missing"))
+                .expectErrorMessage("Product not found in this branch")
+                .verify();
+    }
+
+    @Test
+    void findBranch_SeesBranchesAddedAfterFirstLookup() {
+        assertNull(franchise.findBranch("b2"));
+
+        Branch added = new Branch("b2", "Branch 2", new ArrayList<>());
+        franchise.getBranches().add(added);
+
+        assertSame(added, franchise.findBranch("b2"));
+    }
+
+    @Test
+    void findBranch_SeesReplacedBranchList() {
+        franchise.findBranch("b1");
+        Branch replacement = new Branch("b1", "Branch 1 bis", new ArrayList<>());
+        franchise.setBranches(new ArrayList<>(List.of(replacement)));
+
+        assertSame(replacement, franchise.findBranch("b1"));
+    }
+
+    @Test
+    void findProduct_FollowsIdChanges() {
+        Branch branch = franchise.findBranch("b1");
+        branch.findProduct("p1").setId("p9");
+
+        assertNull(branch.findProduct("p1"));
+        assertSame(branch.getProducts().get(0), branch.findProduct("p9"));
+    }
+
+    @Test
+    void findBranch_SeesElementsReplacedInTheSameList() {
+        franchise.findBranch("b1");
+        Branch replacement = new Branch("b3", "Branch 3", new ArrayList<>());
+        franchise.getBranches().set(0, replacement);
+
+        assertSame(replacement, franchise.findBranch("b3"));
+        assertNull(franchise.findBranch("b1"));
+    }
+
+    @Test
+    void findProduct_SeesIdsSwappedWithinTheSameList() {
+        Branch branch = franchise.findBranch("b1");
+        branch.findProduct("p1").setId("tmp");
+        branch.findProduct("p2").setId("p1");
+        branch.findProduct("tmp").setId("p2");
+
+        assertSame(branch.getProducts().get(1), branch.findProduct("p1"));
+        assertSame(branch.getProducts().get(0), branch.findProduct("p2"));
+    }
+
+    @Test
+    void removeProduct_UpdatesIndex() {
+        StepVerifier.create(franchiseLookup.removeProduct(franchise, "b1", "p1"))
+                .verifyComplete();
+
+        Branch branch = franchise.findBranch("b1");
+        assertNull(branch.findProduct("p1"));
+        StepVerifier.create(franchiseLookup.removeProduct(franchise, "b1", "p1"))
+                .expectErrorMessage("Product not found in this branch")
+                .verify();
+    }
+}
@@ -0,0 +1,120 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithBranch;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.FranchiseReadHandler;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.FranchiseRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FranchiseReadHandlerTest {
+
+    @Mock
+    private FranchiseService franchiseService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        FranchiseReadHandler handler = new FranchiseReadHandler(franchiseService, new ObjectMapper());
+        webTestClient = WebTestClient.bindToRouterFunction(new FranchiseRouter().franchiseReadRoutes(handler)).build();
+    }
+
+    @Test
+    void getFranchiseById_Success() {
+        Franchise franchise = new Franchise("1", "Franchise 1", List.of(), 0L);
+        when(franchiseService.getFranchiseById("1")).thenReturn(Mono.just(franchise));
+
+        webTestClient.get()
+                .uri("/franchises/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(Franchise.class)
+                .isEqualTo(franchise);
+    }
+
+    @Test
+    void getFranchiseById_MissingFranchiseAnswersLikeTheController() {
+        when(franchiseService.getFranchiseById("1")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/franchises/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void getFranchiseById_RejectsUnknownView() {
+        webTestClient.get()
+                .uri("/franchises/1?view=EVERYTHING")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(franchiseService, never()).getFranchiseById("1");
+    }
+
+    @Test
+    void getFranchiseById_NotModified() {
+        when(franchiseService.getFranchiseVersion("1")).thenReturn(Mono.just(0L));
+
+        webTestClient.get()
+                .uri("/franchises/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0-full\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0-full\"");
+
+        verify(franchiseService, never()).getFranchiseById("1");
+    }
+
+    @Test
+    void getBranchesByFranchiseId_Success() {
+        Branch branch = new Branch("b1", "Branch 1", List.of());
+        when(franchiseService.getFranchiseVersion("1")).thenReturn(Mono.just(2L));
+        when(franchiseService.getBranchesByFranchiseId("1")).thenReturn(Flux.just(branch));
+
+        webTestClient.get()
+                .uri("/franchises/1/branches")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2-full\"")
+                .expectBodyList(Branch.class)
+                .hasSize(1)
+                .contains(branch);
+    }
+
+    @Test
+    void getMaxStockProductsByFranchise_Success() {
+        ProductWithBranch product = new ProductWithBranch("Branch 1", new Product("p1", "Product 1", 10));
+        when(franchiseService.getMaxStockProductsByFranchise("1")).thenReturn(Mono.just(List.of(product)));
+
+        webTestClient.get()
+                .uri("/franchises/1/products/max-stock")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductWithBranch.class)
+                .hasSize(1)
+                .contains(product);
+    }
+}
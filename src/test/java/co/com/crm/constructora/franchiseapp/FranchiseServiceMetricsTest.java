@@ -0,0 +1,70 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.ports.FranchiseService;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseServiceMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FranchiseServiceMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FranchiseService delegate;
+    private FranchiseService franchiseService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        FranchiseServiceMetrics metrics = new FranchiseServiceMetrics(beanFactory.getBeanProvider(MeterRegistry.class));
+        delegate = mock(FranchiseService.class);
+        franchiseService = (FranchiseService) metrics.postProcessAfterInitialization(delegate, "franchiseServiceImpl");
+    }
+
+    @Test
+    void getFranchiseById_RecordsTimerAndPayload() {
+        Franchise franchise = new Franchise("f1", "Franchise 1", List.of(
+                new Branch("b1", "Branch 1", List.of(new Product("p1", "Product 1", 10), new Product("p2", "Product 2", 3))),
+                new Branch("b2", "Branch 2", List.of())), 0L);
+        when(delegate.getFranchiseById("f1")).thenReturn(Mono.just(franchise));
+
+        StepVerifier.create(franchiseService.getFranchiseById("f1"))
+                .expectNext(franchise)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get(FranchiseServiceMetrics.TIMER)
+                .tag("method", "getFranchiseById")
+                .tag("outcome", "success")
+                .timer().count());
+        assertEquals(2, meterRegistry.get(FranchiseServiceMetrics.BRANCHES).summary().totalAmount());
+        assertEquals(2, meterRegistry.get(FranchiseServiceMetrics.PRODUCTS).summary().totalAmount());
+    }
+
+    @Test
+    void updateFranchiseName_TagsErrors() {
+        when(delegate.updateFranchiseName("f1", "New", null)).thenReturn(Mono.error(new Exception("Franchise not found")));
+
+        StepVerifier.create(franchiseService.updateFranchiseName("f1", "New", null))
+                .expectErrorMessage("Franchise not found")
+                .verify();
+
+        assertEquals(1, meterRegistry.get(FranchiseServiceMetrics.TIMER)
+                .tag("method", "updateFranchiseName")
+                .tag("outcome", "error")
+                .timer().count());
+    }
+}
@@ -0,0 +1,96 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LowStockAlertsTest {
+
+    private LowStockAlerts lowStockAlerts;
+
+    @BeforeEach
+    void setUp() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getAlerts().setLowStockThreshold(5);
+        lowStockAlerts = new LowStockAlerts(franchiseProperties);
+    }
+
+    @Test
+    void stockChanged_EmitsOnlyWhenCrossingBelowThresholdToEverySubscriber() {
+        LowStockAlert expected = new LowStockAlert("f1", "b1", "p1", "Product 1", 4, 5, LowStockAlert.Reason.STOCK_CHANGED);
+
+        StepVerifier first = StepVerifier.create(lowStockAlerts.stream().take(Duration.ofMillis(200)))
+                .expectNext(expected)
+                .expectComplete()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(lowStockAlerts.stream().take(Duration.ofMillis(200)))
+                .expectNext(expected)
+                .expectComplete()
+                .verifyLater();
+
+        lowStockAlerts.stockChanged("f1", "b1", new Product("p1", "Product 1", 8), 5);
+        lowStockAlerts.stockChanged("f1", "b1", new Product("p1", "Product 1", 5), 4);
+        // Ya estaba por debajo
+        lowStockAlerts.stockChanged("f1", "b1", new Product("p1", "Product 1", 4), 3);
+
+        first.verify(Duration.ofSeconds(1));
+        second.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void applied_ComputesTheFinalStockOfIncrements() {
+        StepVerifier verifier = StepVerifier.create(lowStockAlerts.stream().take(1))
+                .expectNext(new LowStockAlert("f1", "b1", "p2", "Product 2", 2, 5, LowStockAlert.Reason.STOCK_CHANGED))
+                .expectComplete()
+                .verifyLater();
+
+        lowStockAlerts.applied(Map.of(
+                        "f1/b1/p1", new Product("p1", "Product 1", 20),
+                        "f1/b1/p2", new Product("p2", "Product 2", 6)),
+                List.of(new StockUpdate("f1", "b1", "p1", -4), new StockUpdate("f1", "b1", "p2", -4)), false);
+
+        verifier.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void productRemoved_EmitsOnlyWhenTheRemovedStockWasAtOrAboveThreshold() {
+        StepVerifier verifier = StepVerifier.create(lowStockAlerts.stream().take(Duration.ofMillis(200)))
+                .expectNext(new LowStockAlert("f1", "b1", "p1", "Product 1", 0, 5, LowStockAlert.Reason.PRODUCT_REMOVED))
+                .expectComplete()
+                .verifyLater();
+
+        lowStockAlerts.productRemoved("f1", "b1", new Product("p1", "Product 1", 5));
+        // Ya estaba por debajo: su alerta salió al bajar
+        lowStockAlerts.productRemoved("f1", "b1", new Product("p2", "Product 2", 4));
+
+        verifier.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void mayCross_OnlyFinalValuesBelowThresholdOrDecrements() {
+        assertTrue(lowStockAlerts.mayCross(4, true));
+        assertFalse(lowStockAlerts.mayCross(5, true));
+        assertTrue(lowStockAlerts.mayCross(-1, false));
+        assertFalse(lowStockAlerts.mayCross(3, false));
+    }
+
+    @Test
+    void stockChanged_WithoutSubscribersIsDropped() {
+        lowStockAlerts.stockChanged("f1", "b1", new Product("p1", "Product 1", 10), 0);
+
+        StepVerifier.create(lowStockAlerts.stream().take(Duration.ofMillis(50)))
+                .verifyComplete();
+    }
+}
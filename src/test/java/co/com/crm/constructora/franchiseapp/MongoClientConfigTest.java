@@ -0,0 +1,57 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.MongoClientConfig;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MongoClientConfigTest {
+
+    @Test
+    void franchiseMongoClientSettings_AppliesPoolTimeoutsAndCompressors() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getMongo().setMaxPoolSize(50);
+        franchiseProperties.getMongo().setMinPoolSize(5);
+        franchiseProperties.getMongo().setMaxWaitTime(Duration.ofMillis(500));
+        franchiseProperties.getMongo().setCompressors(List.of("zlib", "SNAPPY"));
+
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        new MongoClientConfig().franchiseMongoClientSettings(franchiseProperties).customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        assertEquals(50, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(5, settings.getConnectionPoolSettings().getMinSize());
+        assertEquals(500, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertEquals(10_000, settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(List.of("zlib", "snappy"), settings.getCompressorList().stream()
+                .map(compressor -> compressor.getName())
+                .toList());
+    }
+
+    @Test
+    void franchiseMongoClientSettings_RejectsUnknownCompressor() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getMongo().setCompressors(List.of("lz4"));
+
+        assertThrows(IllegalArgumentException.class, () -> new MongoClientConfig()
+                .franchiseMongoClientSettings(franchiseProperties)
+                .customize(MongoClientSettings.builder()));
+    }
+
+    @Test
+    void queryReadPreference_AppliesMaxStaleness() {
+        FranchiseProperties.Mongo mongo = new FranchiseProperties.Mongo();
+        mongo.setReadPreference("secondaryPreferred");
+        mongo.setMaxStaleness(Duration.ofSeconds(120));
+
+        assertEquals(ReadPreference.secondaryPreferred(120, TimeUnit.SECONDS), mongo.queryReadPreference());
+    }
+}
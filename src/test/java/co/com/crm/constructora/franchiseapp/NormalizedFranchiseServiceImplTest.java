@@ -0,0 +1,278 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.BranchStockTotal;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.FranchiseView;
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductSearch;
+import co.com.crm.constructora.franchiseapp.domain.model.ProductWithFranchise;
+import co.com.crm.constructora.franchiseapp.domain.model.VersionMismatchException;
+import co.com.crm.constructora.franchiseapp.domain.service.BulkStockUpdater;
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.domain.service.NormalizedFranchiseServiceImpl;
+import co.com.crm.constructora.franchiseapp.domain.service.OptimisticLockRetry;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchDocument;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchDocumentRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.FranchiseRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.ProductDocument;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.ProductDocumentRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NormalizedFranchiseServiceImplTest {
+
+    @Mock
+    private FranchiseRepository franchiseRepository;
+
+    @Mock
+    private BranchDocumentRepository branchDocumentRepository;
+
+    @Mock
+    private ProductDocumentRepository productDocumentRepository;
+
+    private NormalizedFranchiseServiceImpl franchiseService;
+
+    @BeforeEach
+    void setUp() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(new SimpleMeterRegistry(), franchiseProperties);
+        franchiseService = new NormalizedFranchiseServiceImpl(franchiseRepository, branchDocumentRepository,
+                productDocumentRepository, optimisticLockRetry, franchiseProperties, new BulkStockUpdater(franchiseProperties, new LowStockAlerts(franchiseProperties)),
+                new LowStockAlerts(franchiseProperties), Optional.empty(), Optional.empty(), Optional.empty());
+    }
+
+    @Test
+    void getFranchiseById_AssemblesBranchesAndProducts() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+        franchise.setName("Franchise 1");
+
+        when(franchiseRepository.findById("1")).thenReturn(Mono.just(franchise));
+        when(branchDocumentRepository.findByFranchiseIdOrderByIdAsc("1")).thenReturn(Flux.just(
+                new BranchDocument("x1", "1", "b1", "Branch 1"),
+                new BranchDocument("x2", "1", "b2", "Branch 2")));
+        when(productDocumentRepository.findByFranchiseIdOrderByIdAsc("1")).thenReturn(Flux.just(
+                new ProductDocument("y1", "1", "b1", "p1", "Product 1", 10)));
+
+        StepVerifier.create(franchiseService.getFranchiseById("1"))
+                .expectNextMatches(found -> found.getBranches().equals(List.of(
+                        new Branch("b1", "Branch 1", List.of(new Product("p1", "Product 1", 10))),
+                        new Branch("b2", "Branch 2", List.of()))))
+                .verifyComplete();
+    }
+
+    @Test
+    void getFranchisesByIds_AssemblesEveryFranchiseFromThreeQueries() {
+        Franchise first = new Franchise();
+        first.setId("1");
+        Franchise second = new Franchise();
+        second.setId("2");
+        List<String> ids = List.of("2", "1", "missing");
+
+        when(franchiseRepository.findByIds(ids, FranchiseView.SUMMARY, ReadPreference.primary())).thenReturn(Flux.just(second, first));
+        when(branchDocumentRepository.findByFranchiseIdInOrderByIdAsc(ids)).thenReturn(Flux.just(
+                new BranchDocument("x1", "1", "b1", "Branch 1"),
+                new BranchDocument("x2", "2", "b1", "Branch 2")));
+        when(productDocumentRepository.findByFranchiseIdInOrderByIdAsc(ids)).thenReturn(Flux.just(
+                new ProductDocument("y1", "2", "b1", "p1", "Product 1", 10)));
+
+        StepVerifier.create(franchiseService.getFranchisesByIds(ids, FranchiseView.FULL))
+                .expectNextMatches(found -> found.getId().equals("2") && found.getBranches().equals(List.of(
+                        new Branch("b1", "Branch 2", List.of(new Product("p1", "Product 1", 10))))))
+                .expectNextMatches(found -> found.getId().equals("1") && found.getBranches().equals(List.of(
+                        new Branch("b1", "Branch 1", List.of()))))
+                .verifyComplete();
+    }
+
+    @Test
+    void modifyProductStock_UpdatesOnlyTheProductDocument() {
+        when(productDocumentRepository.findAndSetStock("1", "b1", "p1", 20))
+                .thenReturn(Mono.just(new ProductDocument("y1", "1", "b1", "p1", "Product 1", 20)));
+        when(franchiseRepository.incrementVersion("1", null)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(franchiseService.modifyProductStock("1", "b1", "p1", 20, null))
+                .expectNext(new Product("p1", "Product 1", 20))
+                .verifyComplete();
+
+        verify(franchiseRepository).incrementVersion("1", null);
+    }
+
+    @Test
+    void adjustProductStock_AlertsWhenCrossingTheThreshold() {
+        when(productDocumentRepository.findAndIncrementStock("1", "b1", "p1", -5))
+                .thenReturn(Mono.just(new ProductDocument("y1", "1", "b1", "p1", "Product 1", 12)));
+        when(franchiseRepository.incrementVersion("1", null)).thenReturn(Mono.just(true));
+
+        StepVerifier alerts = StepVerifier.create(franchiseService.lowStockAlerts().take(1))
+                .expectNext(new LowStockAlert("1", "b1", "p1", "Product 1", 7, 10, LowStockAlert.Reason.STOCK_CHANGED))
+                .expectComplete()
+                .verifyLater();
+
+        StepVerifier.create(franchiseService.adjustProductStock("1", "b1", "p1", -5))
+                .verifyComplete();
+
+        alerts.verify(Duration.ofSeconds(1));
+        verify(productDocumentRepository, never()).incrementProductStock(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void modifyProductStock_VersionMismatchSkipsTheWrite() {
+        PublisherProbe<ProductDocument> write = PublisherProbe.of(
+                Mono.just(new ProductDocument("y1", "1", "b1", "p1", "Product 1", 20)));
+        when(productDocumentRepository.findAndSetStock("1", "b1", "p1", 20)).thenReturn(write.mono());
+        when(franchiseRepository.hasVersion("1", 4L)).thenReturn(Mono.just(false));
+        when(franchiseRepository.existsById("1")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(franchiseService.modifyProductStock("1", "b1", "p1", 20, 4L))
+                .expectError(VersionMismatchException.class)
+                .verify();
+
+        write.assertWasNotSubscribed();
+        verify(franchiseRepository, never()).incrementVersion(any(), any());
+    }
+
+    @Test
+    void modifyProductStock_IfMatchBumpsTheVersionOnlyAfterTheWrite() {
+        when(franchiseRepository.hasVersion("1", 4L)).thenReturn(Mono.just(true));
+        when(productDocumentRepository.findAndSetStock("1", "b1", "p1", 20)).thenReturn(Mono.empty());
+        when(branchDocumentRepository.existsByFranchiseIdAndBranchId("1", "b1")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(franchiseService.modifyProductStock("1", "b1", "p1", 20, 4L))
+                .expectErrorMessage("Product not found in this branch")
+                .verify();
+
+        verify(franchiseRepository, never()).incrementVersion(any(), any());
+    }
+
+    @Test
+    void modifyProductStock_BranchNotFound() {
+        when(productDocumentRepository.findAndSetStock("1", "b1", "p1", 20)).thenReturn(Mono.empty());
+        when(branchDocumentRepository.existsByFranchiseIdAndBranchId("1", "b1")).thenReturn(Mono.just(false));
+        when(franchiseRepository.existsById("1")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(franchiseService.modifyProductStock("1", "b1", "p1", 20, null))
+                .expectErrorMessage("Branch not found in this franchise")
+                .verify();
+    }
+
+    @Test
+    void searchProducts_ResolvesFranchiseAndBranchNames() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+        franchise.setName("Franchise 1");
+
+        when(productDocumentRepository.searchProducts(new ProductSearch("pro", ProductSearch.Match.PREFIX, null, 5, 50)))
+                .thenReturn(Flux.just(new ProductDocument("y1", "1", "b1", "p1", "Product 1", 10)));
+        when(franchiseRepository.findAllById(Set.of("1"))).thenReturn(Flux.just(franchise));
+        when(branchDocumentRepository.findByFranchiseIdInAndBranchIdIn(Set.of("1"), Set.of("b1")))
+                .thenReturn(Flux.just(new BranchDocument("x1", "1", "b1", "Branch 1")));
+
+        StepVerifier.create(franchiseService.searchProducts("pro", ProductSearch.Match.PREFIX, null, 5, null))
+                .expectNext(new ProductWithFranchise("1", "Franchise 1", "b1", "Branch 1", new Product("p1", "Product 1", 10)))
+                .verifyComplete();
+    }
+
+    @Test
+    void searchProducts_RejectsBlankQuery() {
+        StepVerifier.create(franchiseService.searchProducts(" ", ProductSearch.Match.PREFIX, null, null, null))
+                .expectErrorMessage("Search query must not be blank")
+                .verify();
+    }
+
+    @Test
+    void getFranchiseById_BranchesViewSkipsProducts() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+        franchise.setName("Franchise 1");
+
+        when(franchiseRepository.findById("1")).thenReturn(Mono.just(franchise));
+        when(branchDocumentRepository.findByFranchiseIdOrderByIdAsc("1")).thenReturn(Flux.just(
+                new BranchDocument("x1", "1", "b1", "Branch 1")));
+
+        StepVerifier.create(franchiseService.getFranchiseById("1", FranchiseView.BRANCHES))
+                .expectNextMatches(found -> found.getBranches().equals(List.of(new Branch("b1", "Branch 1", null))))
+                .verifyComplete();
+
+        verify(productDocumentRepository, never()).findByFranchiseIdOrderByIdAsc(any());
+    }
+
+    @Test
+    void getBranchStockTotals_IncludesBranchesWithoutProducts() {
+        Franchise franchise = new Franchise();
+        franchise.setId("1");
+        franchise.setName("Franchise 1");
+
+        when(productDocumentRepository.branchStockTotals("1"))
+                .thenReturn(Flux.just(new BranchStockTotal("1", null, "b1", null, 2, 1, 7)));
+        when(franchiseRepository.findAllById(List.of("1"))).thenReturn(Flux.just(franchise));
+        when(branchDocumentRepository.findByFranchiseIdOrderByIdAsc("1")).thenReturn(Flux.just(
+                new BranchDocument("x1", "1", "b1", "Branch 1"),
+                new BranchDocument("x2", "1", "b2", "Branch 2")));
+
+        StepVerifier.create(franchiseService.getBranchStockTotals("1"))
+                .expectNext(new BranchStockTotal("1", "Franchise 1", "b1", "Branch 1", 2, 1, 7))
+                .expectNext(new BranchStockTotal("1", "Franchise 1", "b2", "Branch 2", 0, 0, 0))
+                .verifyComplete();
+    }
+
+    @Test
+    void getStockHistogram_RejectsUnorderedBoundaries() {
+        StepVerifier.create(franchiseService.getStockHistogram(List.of(10, 1), null))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException status
+                        && status.getStatusCode() == HttpStatus.BAD_REQUEST
+                        && "Histogram boundaries must be strictly increasing".equals(status.getReason()))
+                .verify();
+    }
+
+    @Test
+    void addProducts_AssignsIdsAndInsertsOnce() {
+        when(branchDocumentRepository.existsByFranchiseIdAndBranchId("1", "b1")).thenReturn(Mono.just(true));
+        when(productDocumentRepository.saveAll(any(Iterable.class)))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<Iterable<ProductDocument>>getArgument(0)));
+        when(franchiseRepository.incrementVersion("1", null)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(franchiseService.addProducts("1", "b1",
+                        List.of(new Product(null, "Product 1", 5), new Product("p2", "Product 2", 0))))
+                .expectNextMatches(product -> product.getId() != null && product.getName().equals("Product 1"))
+                .expectNext(new Product("p2", "Product 2", 0))
+                .verifyComplete();
+
+        verify(productDocumentRepository).saveAll(any(Iterable.class));
+    }
+
+    @Test
+    void addProducts_BranchNotFound() {
+        when(branchDocumentRepository.existsByFranchiseIdAndBranchId("1", "b9")).thenReturn(Mono.just(false));
+        when(franchiseRepository.existsById("1")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(franchiseService.addProducts("1", "b9", List.of(new Product(null, "Product 1", 5))))
+                .expectErrorMessage("Branch not found in this franchise")
+                .verify();
+    }
+}
@@ -0,0 +1,74 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.service.OptimisticLockRetry;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OptimisticLockRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticLockRetry optimisticLockRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getRetry().setMaxAttempts(3);
+        franchiseProperties.getRetry().setMinBackoff(Duration.ofMillis(1));
+        franchiseProperties.getRetry().setMaxBackoff(Duration.ofMillis(5));
+        optimisticLockRetry = new OptimisticLockRetry(meterRegistry, franchiseProperties);
+    }
+
+    @Test
+    void apply_RetriesUntilWriteSucceeds() {
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> write = Mono.defer(() -> calls.incrementAndGet() < 3
+                ? Mono.error(new OptimisticLockingFailureException("conflict"))
+                : Mono.just("saved"));
+
+        StepVerifier.create(optimisticLockRetry.apply(write))
+                .expectNext("saved")
+                .verifyComplete();
+
+        assertEquals(3, calls.get());
+        assertEquals(3, meterRegistry.counter("franchise.write.attempts").count());
+        assertEquals(2, meterRegistry.counter("franchise.write.conflicts").count());
+    }
+
+    @Test
+    void apply_GivesUpAfterMaxAttempts() {
+        Mono<String> write = Mono.error(new OptimisticLockingFailureException("conflict"));
+
+        StepVerifier.create(optimisticLockRetry.apply(write))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+
+        assertEquals(3, meterRegistry.counter("franchise.write.attempts").count());
+        assertEquals(1, meterRegistry.counter("franchise.write.retries.exhausted").count());
+    }
+
+    @Test
+    void apply_DoesNotRetryOtherErrors() {
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> write = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new Exception("Franchise not found"));
+        });
+
+        StepVerifier.create(optimisticLockRetry.apply(write))
+                .expectErrorMessage("Franchise not found")
+                .verify();
+
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,125 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.LoadShedder;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.RateLimitFilter;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.rest.TokenBucket;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTest {
+
+    private static final WebFilterChain OK = exchange -> Mono.empty();
+
+    private FranchiseProperties franchiseProperties;
+    private LoadShedder loadShedder;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getRateLimit().setClientPermitsPerSecond(1);
+        franchiseProperties.getRateLimit().setClientBurst(2);
+        franchiseProperties.getRateLimit().setExpensiveConcurrency(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        loadShedder = new LoadShedder(meterRegistry, franchiseProperties);
+        filter = new RateLimitFilter(franchiseProperties, loadShedder, meterRegistry);
+    }
+
+    @Test
+    void tokenBucket_AllowsBurstThenWaitsOneInterval() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(100_000_000L, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(100_000_000L));
+    }
+
+    @Test
+    void filter_RejectsClientOverItsBucketWithRetryAfter() {
+        assertNull(run(get("/franchises/1", "10.0.0.1")).getResponse().getStatusCode());
+        assertNull(run(get("/franchises/2", "10.0.0.1")).getResponse().getStatusCode());
+
+        MockServerWebExchange rejected = run(get("/franchises/3", "10.0.0.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        assertNull(run(get("/franchises/3", "10.0.0.2")).getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_CapsConcurrentExpensiveRequests() {
+        Sinks.Empty<Void> inProgress = Sinks.empty();
+        MockServerWebExchange first = get("/franchises/1/products/max-stock", "10.0.0.1");
+        filter.filter(first, exchange -> inProgress.asMono()).subscribe();
+
+        MockServerWebExchange second = run(get("/franchises/2/products/max-stock", "10.0.0.2"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, second.getResponse().getStatusCode());
+
+        inProgress.tryEmitEmpty();
+        assertNull(run(get("/franchises/2/products/max-stock", "10.0.0.2")).getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_ShedsWhenP99IsOverThreshold() {
+        franchiseProperties.getRateLimit().setSheddingP99Latency(Duration.ofMillis(100));
+        for (int i = 0; i < 100; i++) {
+            loadShedder.record(Duration.ofSeconds(1).toNanos());
+        }
+        loadShedder.evaluate();
+
+        assertTrue(loadShedder.overloaded());
+        MockServerWebExchange shed = run(get("/franchises/1", "10.0.0.1"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getResponse().getStatusCode());
+        assertEquals("1", shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void filter_DoesNotShedOnTooFewSamples() {
+        franchiseProperties.getRateLimit().setSheddingP99Latency(Duration.ofMillis(100));
+        loadShedder.record(Duration.ofSeconds(1).toNanos());
+        loadShedder.evaluate();
+
+        assertFalse(loadShedder.overloaded());
+        assertNull(run(get("/franchises/1", "10.0.0.1")).getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_IgnoresClientIdHeader() {
+        for (String client : new String[]{"a", "b"}) {
+            run(MockServerWebExchange.from(MockServerHttpRequest.get("/franchises/1")
+                    .remoteAddress(new InetSocketAddress("10.0.0.1", 8080))
+                    .header("X-Client-Id", client)));
+        }
+
+        MockServerWebExchange rejected = run(get("/franchises/3", "10.0.0.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+    }
+
+    private MockServerWebExchange run(MockServerWebExchange exchange) {
+        filter.filter(exchange, OK).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange get(String path, String address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .remoteAddress(new InetSocketAddress(address, 8080)));
+    }
+}
@@ -0,0 +1,231 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockSnapshot;
+import co.com.crm.constructora.franchiseapp.domain.service.StockJournal;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockMovementRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockSnapshotRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockJournalTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @Mock
+    private StockMovementRepository movementRepository;
+
+    @Mock
+    private StockSnapshotRepository snapshotRepository;
+
+    private StockJournal stockJournal;
+
+    @BeforeEach
+    void setUp() {
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        // Sin flush ni snapshots periódicos durante el test: solo los explícitos
+        franchiseProperties.getJournal().setFlushInterval(Duration.ofHours(1));
+        franchiseProperties.getJournal().setSnapshotInterval(Duration.ofHours(1));
+        stockJournal = new StockJournal(movementRepository, snapshotRepository, franchiseProperties,
+                new SimpleMeterRegistry(), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockJournal.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void append_WritesConcurrentAppendsInOneInsert() {
+        when(movementRepository.insertAll(any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(Mono.when(
+                        stockJournal.append(List.of(StockMovement.set("f1", "b1", "p1", 10))),
+                        stockJournal.append(List.of(StockMovement.adjust("f1", "b1", "p1", -2),
+                                StockMovement.remove("f1", "b1", "p2"))),
+                        stockJournal.flush()))
+                .verifyComplete();
+
+        ArgumentCaptor<List<StockMovement>> batch = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository, times(1)).insertAll(batch.capture());
+        assertEquals(List.of(StockMovement.Type.SET, StockMovement.Type.ADJUST, StockMovement.Type.REMOVE),
+                batch.getValue().stream().map(StockMovement::getType).toList());
+        batch.getValue().forEach(movement -> assertEquals(NOW, movement.getAt()));
+    }
+
+    @Test
+    void append_WaitsUntilAFailedBatchIsRetried() {
+        when(movementRepository.insertAll(any()))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(Mono.when(
+                        stockJournal.append(List.of(StockMovement.set("f1", "b1", "p1", 10))),
+                        stockJournal.flush(),
+                        stockJournal.flush()))
+                .verifyComplete();
+
+        verify(movementRepository, times(2)).insertAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void record_JournalsWritesToTheSameProductInTheOrderTheyWereApplied() {
+        when(movementRepository.insertAll(any())).thenReturn(Mono.empty());
+        Sinks.Empty<Void> firstWrite = Sinks.empty();
+        String key = StockJournal.key("f1", "b1", "p1");
+
+        // La segunda escritura termina antes, pero no empieza hasta que la primera se registra
+        StepVerifier.create(Mono.when(
+                        stockJournal.record(key, firstWrite.asMono(), List.of(StockMovement.set("f1", "b1", "p1", 10))),
+                        stockJournal.record(key, Mono.empty(), List.of(StockMovement.set("f1", "b1", "p1", 7)))))
+                .then(firstWrite::tryEmitEmpty)
+                .then(() -> stockJournal.flush().subscribe())
+                .verifyComplete();
+
+        ArgumentCaptor<List<StockMovement>> batch = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository, times(1)).insertAll(batch.capture());
+        assertEquals(List.of(10, 7), batch.getValue().stream().map(StockMovement::getQuantity).toList());
+    }
+
+    @Test
+    void record_DoesNotJournalAFailedWrite() {
+        StepVerifier.create(stockJournal.record(StockJournal.key("f1", "b1", "p1"),
+                        Mono.error(new Exception("Franchise not found")), List.of(StockMovement.set("f1", "b1", "p1", 10))))
+                .verifyErrorMessage("Franchise not found");
+
+        StepVerifier.create(stockJournal.flush()).verifyComplete();
+        verify(movementRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void append_StopsWaitingAfterTheTimeoutAndDropsWhenTheQueueIsFull() {
+        stockJournal.close();
+        FranchiseProperties franchiseProperties = new FranchiseProperties();
+        franchiseProperties.getJournal().setFlushInterval(Duration.ofHours(1));
+        franchiseProperties.getJournal().setSnapshotInterval(Duration.ofHours(1));
+        franchiseProperties.getJournal().setAppendTimeout(Duration.ofMillis(50));
+        franchiseProperties.getJournal().setMaxPending(1);
+        franchiseProperties.getJournal().setShutdownTimeout(Duration.ofMillis(100));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        stockJournal = new StockJournal(movementRepository, snapshotRepository, franchiseProperties,
+                meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+        // Nadie dispara el flush hasta close()
+        when(movementRepository.insertAll(any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(stockJournal.append(List.of(StockMovement.set("f1", "b1", "p1", 10))))
+                .verifyComplete();
+        StepVerifier.create(stockJournal.append(List.of(StockMovement.set("f1", "b1", "p2", 5))))
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.get("franchise.stock.journal.append.timeouts").counter().count());
+        assertEquals(1.0, meterRegistry.get("franchise.stock.journal.dropped").counter().count());
+    }
+
+    @Test
+    void close_FailsTheMovementsThatCouldNotBeWritten() {
+        when(movementRepository.insertAll(any())).thenReturn(Mono.error(new RuntimeException("connection reset")));
+        CompletableFuture<Void> appended = stockJournal.append(List.of(StockMovement.set("f1", "b1", "p1", 10))).toFuture();
+
+        stockJournal.close();
+
+        assertTrue(appended.isCompletedExceptionally());
+    }
+
+    @Test
+    void stockAt_ReplaysMovementsOnTopOfTheNearestSnapshot() {
+        Instant snapshotAt = NOW.minus(Duration.ofHours(2));
+        when(snapshotRepository.findFirstByFranchiseIdAndBranchIdAndAtLessThanEqualOrderByAtDesc("f1", "b1", NOW))
+                .thenReturn(Mono.just(StockSnapshot.of("f1", "b1", snapshotAt, Map.of("p1", 5, "p2", 3))));
+        when(movementRepository.findMovements("f1", "b1", null, snapshotAt, NOW))
+                .thenReturn(Flux.just(StockMovement.adjust("f1", "b1", "p1", -2),
+                        StockMovement.set("f1", "b1", "p3", 7),
+                        StockMovement.remove("f1", "b1", "p2")));
+
+        StepVerifier.create(stockJournal.stockAt("f1", "b1", null))
+                .assertNext(snapshot -> {
+                    assertEquals(NOW, snapshot.getAt());
+                    assertEquals(Map.of("p1", 3, "p3", 7), snapshot.stocks());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void stockAt_IsUnknownWithoutABaseSnapshot() {
+        when(snapshotRepository.findFirstByFranchiseIdAndBranchIdAndAtLessThanEqualOrderByAtDesc("f1", "b1", NOW))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(stockJournal.stockAt("f1", "b1", null))
+                .verifyComplete();
+
+        verify(movementRepository, never()).findMovements(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void seed_SavesTheCurrentStockOfBranchesWithoutSnapshots() {
+        Franchise franchise = new Franchise("f1", "Franchise", List.of(
+                new Branch("b1", "Seeded", List.of(new Product("p1", "Product", 5))),
+                new Branch("b2", "New", List.of(new Product("p2", "Product", 8)))), 0L);
+        when(snapshotRepository.existsByFranchiseIdAndBranchId("f1", "b1")).thenReturn(Mono.just(true));
+        when(snapshotRepository.existsByFranchiseIdAndBranchId("f1", "b2")).thenReturn(Mono.just(false));
+        when(snapshotRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(snapshotRepository.supersede(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(stockJournal.seed(Flux.just(franchise)))
+                .expectNext(1L)
+                .verifyComplete();
+
+        ArgumentCaptor<StockSnapshot> base = ArgumentCaptor.forClass(StockSnapshot.class);
+        verify(snapshotRepository, times(1)).save(base.capture());
+        assertEquals("b2", base.getValue().getBranchId());
+        assertEquals(Map.of("p2", 8), base.getValue().stocks());
+        // Un milisegundo antes: un movimiento registrado ahora se reproduce encima de la base
+        assertTrue(base.getValue().getAt().isBefore(NOW));
+        verify(snapshotRepository).supersede("f1", "b2", base.getValue().getAt(), NOW);
+    }
+
+    @Test
+    void snapshot_IsPostponedWhileOlderMovementsAreNotWritten() {
+        // El último flush lo hace close()
+        when(movementRepository.insertAll(any())).thenReturn(Mono.empty());
+        stockJournal.append(List.of(StockMovement.set("f1", "b1", "p1", 10))).subscribe();
+
+        StepVerifier.create(stockJournal.snapshot(NOW))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(movementRepository, never()).findMovedBranches(any(), any());
+    }
+}
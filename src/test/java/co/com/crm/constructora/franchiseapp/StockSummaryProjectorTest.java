@@ -0,0 +1,144 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.Branch;
+import co.com.crm.constructora.franchiseapp.domain.model.Franchise;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchStockSummary;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.BranchStockSummaryRepository;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockSummaryProjector;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockSummaryProjectorTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private BranchStockSummaryRepository summaryRepository;
+
+    private StockSummaryProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        projector = new StockSummaryProjector(mongoTemplate, summaryRepository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void summarize_KeepsFirstMaxTotalsAndEmptyBranches() {
+        Franchise franchise = new Franchise("f1", "Franchise 1", List.of(
+                new Branch("b1", "Branch 1", List.of(
+                        new Product("p1", "Product 1", 10),
+                        new Product("p2", "Product 2", 30),
+                        new Product("p3", "Product 3", 30))),
+                new Branch("b2", "Branch 2", List.of())), 3L);
+
+        List<BranchStockSummary> summaries = BranchStockSummary.summarize(franchise);
+
+        assertEquals(List.of(
+                new BranchStockSummary("f1/0", "f1", "Franchise 1", 0, "b1", "Branch 1",
+                        new Product("p2", "Product 2", 30), 70, 3),
+                new BranchStockSummary("f1/1", "f1", "Franchise 1", 1, "b2", "Branch 2", null, 0, 0)), summaries);
+    }
+
+    @Test
+    void project_UpdateReplacesSummaries() {
+        Franchise franchise = new Franchise("f1", "Franchise 1", List.of(
+                new Branch("b1", "Branch 1", List.of(new Product("p1", "Product 1", 10)))), 1L);
+        when(summaryRepository.replaceSummaries("f1", BranchStockSummary.summarize(franchise))).thenReturn(Mono.empty());
+
+        StepVerifier.create(projector.project(OperationType.UPDATE, "f1", franchise))
+                .verifyComplete();
+    }
+
+    @Test
+    void project_DeleteRemovesSummaries() {
+        when(summaryRepository.deleteByFranchiseId("f1")).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(projector.project(OperationType.DELETE, "f1", null))
+                .verifyComplete();
+    }
+
+    @Test
+    void project_UpdateOfDeletedFranchiseIsSkipped() {
+        StepVerifier.create(projector.project(OperationType.UPDATE, "f1", null))
+                .verifyComplete();
+
+        verify(summaryRepository, never()).replaceSummaries(any(), any());
+    }
+
+    @Test
+    void rebuild_RemovesSummariesOfDeletedFranchises() {
+        Franchise franchise = new Franchise("f1", "Franchise 1", List.of(
+                new Branch("b1", "Branch 1", List.of(new Product("p1", "Product 1", 10)))), 1L);
+        when(mongoTemplate.findAll(Franchise.class)).thenReturn(Flux.just(franchise));
+        when(summaryRepository.replaceSummaries("f1", BranchStockSummary.summarize(franchise))).thenReturn(Mono.empty());
+        when(summaryRepository.removeOtherFranchises(Set.of("f1"))).thenReturn(Mono.empty());
+
+        StepVerifier.create(projector.rebuild())
+                .verifyComplete();
+
+        verify(summaryRepository).removeOtherFranchises(Set.of("f1"));
+    }
+
+    @Test
+    void touchedBranches_ReturnsTheIndexesOfTheChangedBranches() {
+        BsonDocument updated = new BsonDocument("branches.2.products.0.stock", new BsonInt32(4))
+                .append("branches.5", new BsonDocument())
+                .append("version", new BsonInt64(7));
+
+        assertEquals(Optional.of(Set.of(2, 5)), StockSummaryProjector.touchedBranches(
+                new UpdateDescription(List.of(), updated, List.of())));
+    }
+
+    @Test
+    void touchedBranches_FallsBackToTheWholeFranchiseWhenIndexesShift() {
+        // Un $pull reescribe el array completo
+        assertEquals(Optional.empty(), StockSummaryProjector.touchedBranches(new UpdateDescription(List.of(),
+                new BsonDocument("branches", new BsonArray()), List.of())));
+        assertEquals(Optional.empty(), StockSummaryProjector.touchedBranches(new UpdateDescription(List.of(),
+                new BsonDocument("name", new BsonString("Renamed")), List.of())));
+        assertEquals(Optional.empty(), StockSummaryProjector.touchedBranches(null));
+    }
+
+    @Test
+    void projectBranches_SavesOnlyTheTouchedBranches() {
+        Franchise franchise = new Franchise("f1", "Franchise 1", List.of(
+                new Branch("b1", "Branch 1", List.of(new Product("p1", "Product 1", 10))),
+                new Branch("b2", "Branch 2", List.of(new Product("p2", "Product 2", 4)))), 1L);
+        BranchStockSummary second = BranchStockSummary.summarize(franchise, 1);
+        when(summaryRepository.save(second)).thenReturn(Mono.just(second));
+
+        StepVerifier.create(projector.projectBranches("f1", franchise, Set.of(1)))
+                .verifyComplete();
+
+        verify(summaryRepository).save(second);
+        verify(summaryRepository, never()).replaceSummaries(any(), any());
+    }
+}
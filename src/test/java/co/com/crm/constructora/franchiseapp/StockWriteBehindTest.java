@@ -0,0 +1,188 @@
+package co.com.crm.constructora.franchiseapp;
+
+import co.com.crm.constructora.franchiseapp.domain.model.LowStockAlert;
+import co.com.crm.constructora.franchiseapp.domain.model.Product;
+import co.com.crm.constructora.franchiseapp.domain.model.StockMovement;
+import co.com.crm.constructora.franchiseapp.domain.model.StockUpdate;
+import co.com.crm.constructora.franchiseapp.domain.service.LowStockAlerts;
+import co.com.crm.constructora.franchiseapp.domain.service.StockJournal;
+import co.com.crm.constructora.franchiseapp.domain.service.StockWriteBehind;
+import co.com.crm.constructora.franchiseapp.infraestructure.adapters.persistence.StockBulkOperations;
+import co.com.crm.constructora.franchiseapp.infraestructure.config.FranchiseProperties;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockWriteBehindTest {
+
+    @Mock
+    private StockBulkOperations operations;
+
+    @Mock
+    private StockJournal stockJournal;
+
+    private FranchiseProperties franchiseProperties;
+    private LowStockAlerts lowStockAlerts;
+    private StockWriteBehind stockWriteBehind;
+
+    @BeforeEach
+    void setUp() {
+        franchiseProperties = new FranchiseProperties();
+        // Sin flush periódico durante el test: solo los explícitos
+        franchiseProperties.getWriteBehind().setFlushInterval(Duration.ofHours(1));
+        lowStockAlerts = new LowStockAlerts(franchiseProperties);
+        stockWriteBehind = new StockWriteBehind(operations, lowStockAlerts, franchiseProperties, new SimpleMeterRegistry(),
+                Optional.empty());
+        lenient().when(operations.findProducts(any(), any())).thenReturn(Mono.just(Map.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockWriteBehind.close();
+    }
+
+    @Test
+    void flush_CoalescesChangesPerProduct() {
+        when(operations.bulkSetProductStock(any())).thenReturn(Mono.just(1L));
+        when(operations.bulkIncrementProductStock(any())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(stockWriteBehind.adjust("f1", "b1", "p1", 3)
+                        .then(stockWriteBehind.set("f1", "b1", "p1", 10))
+                        .then(stockWriteBehind.adjust("f1", "b1", "p1", -2))
+                        .then(stockWriteBehind.adjust("f1", "b1", "p2", 1))
+                        .then(stockWriteBehind.adjust("f1", "b1", "p2", 4))
+                        .then(stockWriteBehind.flush()))
+                .verifyComplete();
+
+        verify(operations).bulkSetProductStock(List.of(new StockUpdate("f1", "b1", "p1", 8)));
+        verify(operations).bulkIncrementProductStock(List.of(new StockUpdate("f1", "b1", "p2", 5)));
+    }
+
+    @Test
+    void flush_ReturnsFailedAbsoluteChangesToTheBuffer() {
+        when(operations.bulkSetProductStock(any()))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")))
+                .thenReturn(Mono.just(1L));
+
+        StepVerifier.create(stockWriteBehind.set("f1", "b1", "p1", 3)
+                        .then(stockWriteBehind.flush())
+                        .then(stockWriteBehind.adjust("f1", "b1", "p1", 2))
+                        .then(stockWriteBehind.flush()))
+                .verifyComplete();
+
+        verify(operations, times(1)).bulkSetProductStock(List.of(new StockUpdate("f1", "b1", "p1", 5)));
+        verify(operations, never()).bulkIncrementProductStock(any());
+    }
+
+    @Test
+    void flush_DropsIncrementsWithAnUnknownOutcome() {
+        when(operations.bulkIncrementProductStock(any()))
+                .thenReturn(Mono.error(new RuntimeException("socket timeout")))
+                .thenReturn(Mono.just(1L));
+
+        StepVerifier.create(stockWriteBehind.adjust("f1", "b1", "p1", 3)
+                        .then(stockWriteBehind.flush())
+                        .then(stockWriteBehind.adjust("f1", "b1", "p1", 2))
+                        .then(stockWriteBehind.flush()))
+                .verifyComplete();
+
+        // Repetir el 3 podría sumarlo dos veces si el primer bulkWrite llegó a aplicarse
+        verify(operations, times(1)).bulkIncrementProductStock(List.of(new StockUpdate("f1", "b1", "p1", 2)));
+    }
+
+    @Test
+    void flush_RetriesOnlyTheIncrementsReportedAsFailed() {
+        MongoBulkWriteException source = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(50, "operation exceeded time limit", new BsonDocument(), 0)),
+                null, new ServerAddress(), Set.of());
+        when(operations.bulkIncrementProductStock(any()))
+                .thenReturn(Mono.error(new BulkOperationException("bulk write failed", source)))
+                .thenReturn(Mono.just(1L));
+        List<Set<String>> flushed = new ArrayList<>();
+        stockWriteBehind.onFlushed(flushed::add);
+
+        StepVerifier.create(stockWriteBehind.adjust("f1", "b1", "p1", 3)
+                        .then(stockWriteBehind.flush())
+                        .then(stockWriteBehind.flush()))
+                .verifyComplete();
+
+        verify(operations, times(2)).bulkIncrementProductStock(List.of(new StockUpdate("f1", "b1", "p1", 3)));
+        assertEquals(List.of(Set.of("f1"), Set.of("f1")), flushed);
+    }
+
+    @Test
+    void flush_AlertsOnlyProductsThatCrossTheThreshold() {
+        when(operations.findProducts(eq("f1"), any())).thenReturn(Mono.just(Map.of(
+                "b1/p1", new Product("p1", "Product 1", 12),
+                "b1/p2", new Product("p2", "Product 2", 8))));
+        when(operations.bulkIncrementProductStock(any())).thenReturn(Mono.just(2L));
+
+        StepVerifier alerts = StepVerifier.create(lowStockAlerts.stream().take(Duration.ofMillis(500)))
+                .expectNext(new LowStockAlert("f1", "b1", "p1", "Product 1", 9, 10, LowStockAlert.Reason.STOCK_CHANGED))
+                .expectComplete()
+                .verifyLater();
+
+        StepVerifier.create(stockWriteBehind.adjust("f1", "b1", "p1", -3)
+                        .then(stockWriteBehind.adjust("f1", "b1", "p2", -3))
+                        .then(stockWriteBehind.flush()))
+                .verifyComplete();
+
+        alerts.verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_JournalsOnlyTheChangesThatWereApplied() {
+        stockWriteBehind.close();
+        stockWriteBehind = new StockWriteBehind(operations, lowStockAlerts, franchiseProperties, new SimpleMeterRegistry(),
+                Optional.of(stockJournal));
+        List<StockMovement> journaled = new ArrayList<>();
+        when(stockJournal.record(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            Mono<List<StockUpdate>> write = invocation.getArgument(1);
+            Function<List<StockUpdate>, List<StockMovement>> movements = invocation.getArgument(2);
+            return write.doOnNext(applied -> journaled.addAll(movements.apply(applied)));
+        });
+        // p2 no existe: el bulkWrite no lo aplica
+        when(operations.bulkSetProductStock(any())).thenReturn(Mono.just(1L));
+        when(operations.findExistingProductKeys(eq("f1"), any())).thenReturn(Mono.just(Set.of("b1/p1")));
+
+        StepVerifier.create(stockWriteBehind.set("f1", "b1", "p1", 12)
+                        .then(stockWriteBehind.set("f1", "b1", "p2", 15))
+                        .then(Mono.fromRunnable(() -> assertEquals(List.of(), journaled)))
+                        .then(stockWriteBehind.flush()))
+                .verifyComplete();
+
+        assertEquals(List.of(StockMovement.set("f1", "b1", "p1", 12)), journaled);
+    }
+}